@@ -20,4 +20,7 @@ public final class Asterism
 
     // return a copy of the stars
     public List<Star> stars() { return List.copyOf( stars ); }
+
+    // return the number of stars, without copying them
+    public int size() { return stars.size(); }
 }
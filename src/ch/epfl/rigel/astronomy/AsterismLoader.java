@@ -5,9 +5,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
 
@@ -19,6 +17,7 @@ public enum AsterismLoader implements StarCatalogue.Loader{
      * @param builder : the StarCatalogue builder used to build the set of asterisms
      * @throws IOException
      * loads asterisms of the inputStream and adds them to the builder, or lifts IOException in case of input/output error
+     * or if an asterism contains a star that has not been added to the builder
      */
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException
@@ -28,12 +27,8 @@ public enum AsterismLoader implements StarCatalogue.Loader{
             String line ; 
             String[] fileHip;
             List<Star> asterism;
-
-            Map<Integer, Star> hipparcosStarMap = new HashMap<>();
-            for ( Star s : builder.stars() )
-            {
-                hipparcosStarMap.put( s.hipparcosId(), s );
-            }
+            // the stars are found through the Hipparcos index of the builder
+            List<Star> stars = builder.stars();
 
             while( ( line = stream.readLine() ) != null )
             {
@@ -42,7 +37,9 @@ public enum AsterismLoader implements StarCatalogue.Loader{
 
                 for ( String hip : fileHip )
                 {
-                    asterism.add( hipparcosStarMap.get( Integer.parseInt( hip ) ) );
+                    int index = builder.indexOfHipparcosId( Integer.parseInt( hip ) );
+                    if ( index < 0 ) { throw new IOException( "Unknown Hipparcos id : " + hip ); }
+                    asterism.add( stars.get( index ) );
                 }
 
                 builder.addAsterism( new Asterism( asterism ) );
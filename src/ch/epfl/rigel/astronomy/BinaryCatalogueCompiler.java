@@ -0,0 +1,90 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+import static ch.epfl.rigel.astronomy.BinaryCatalogueLoader.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Converts a HYG catalogue (csv) into the binary star catalogue read by the BinaryCatalogueLoader.
+ * The binary catalogue is shipped with the resources, next to the csv, and has to be compiled again whenever
+ * the csv changes (BinaryCatalogueLoaderTest checks that they match) :
+ *  java ch.epfl.rigel.astronomy.BinaryCatalogueCompiler resources/hygdata_v3.csv resources/hygdata_v3.bin
+ */
+public final class BinaryCatalogueCompiler
+{
+    // avoid any creation of instances
+    private BinaryCatalogueCompiler() { }
+
+    /**
+     * Reads the HYG catalogue and writes its binary version
+     * @param csvStream : the stream who reads the HYG catalogue
+     * @param outputStream : the stream where the binary catalogue is written
+     * @throws IOException in case of input/output error
+     */
+    public static void compile( InputStream csvStream, OutputStream outputStream ) throws IOException
+    {
+        StarCatalogue catalogue = new StarCatalogue.Builder().loadFrom( csvStream, HygDatabaseLoader.INSTANCE ).build();
+        write( catalogue, outputStream );
+    }
+
+    /**
+     * Writes the stars of the catalogue in the binary catalogue format
+     * @param catalogue : the catalogue whose stars are written, in the order of the catalogue
+     * @param outputStream : the stream where the binary catalogue is written
+     * @throws IOException in case of input/output error
+     */
+    public static void write( StarCatalogue catalogue, OutputStream outputStream ) throws IOException
+    {
+        int starCount = catalogue.size();
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        ByteArrayOutputStream designations = new ByteArrayOutputStream();
+        ByteBuffer records = ByteBuffer.allocate( HEADER_BYTES + starCount * RECORD_BYTES ).order( BYTE_ORDER );
+        records.position( HEADER_BYTES );
+
+        for ( int i = 0; i < starCount; i++ )
+        {
+            names.write( catalogue.name( i ).getBytes( US_ASCII ) );
+            designations.write( catalogue.designation( i ).getBytes( US_ASCII ) );
+            records.putInt( catalogue.hipparcosId( i ) )
+                    .putInt( names.size() )
+                    .putDouble( catalogue.ra( i ) )
+                    .putDouble( catalogue.dec( i ) )
+                    .putFloat( (float) catalogue.magnitude( i ) )
+                    .putFloat( (float) catalogue.colorIndex( i ) )
+                    .putInt( designations.size() );
+        }
+
+        records.putInt( 0, MAGIC )
+                .putInt( 4, VERSION )
+                .putInt( 8, starCount )
+                .putInt( 12, names.size() )
+                .putInt( 16, designations.size() );
+
+        outputStream.write( records.array() );
+        names.writeTo( outputStream );
+        designations.writeTo( outputStream );
+        outputStream.flush();
+    }
+
+    /**
+     * Compiles the csv file given as first argument into the binary file given as second argument
+     * @param args : the csv file path and the binary file path
+     * @throws IOException in case of input/output error
+     */
+    public static void main( String[] args ) throws IOException
+    {
+        if ( args.length != 2 )
+        {
+            System.err.println( "Usage : BinaryCatalogueCompiler <hyg csv file> <binary output file>" );
+            return;
+        }
+
+        try ( InputStream csvStream = new FileInputStream( args[ 0 ] );
+              OutputStream outputStream = new BufferedOutputStream( new FileOutputStream( args[ 1 ] ) ) )
+        {
+            compile( csvStream, outputStream );
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Represents a loader of the binary star catalogue written by the BinaryCatalogueCompiler.
+ * The file is made of a header, one fixed-width record per star, a blob containing all the star names and a blob
+ * containing all their other designations (see StarCatalogue.designation) :
+ *  - header : magic number, version, number of stars, size of the name blob, size of the designation blob (5 ints)
+ *  - record : hipparcos id (int), end of the name in the blob (int), ra, dec (doubles), magnitude, color index (floats),
+ *             end of the designation in the blob (int)
+ * The file is meant to be memory-mapped (see StarCatalogue.Builder.loadFrom( Path, MappedLoader )), so that neither
+ * a line needs to be parsed nor the file to be copied on the heap.
+ */
+public enum BinaryCatalogueLoader implements StarCatalogue.MappedLoader
+{
+    INSTANCE();
+
+    // binary format constants, shared with the BinaryCatalogueCompiler
+    static final int MAGIC = 0x52474C43; // "RGLC"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 5 * Integer.BYTES;
+    static final int RECORD_BYTES = 3 * Integer.BYTES + 2 * Double.BYTES + 2 * Float.BYTES;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Adds to the catalogue builder all the stars stored in the binary catalogue read by the stream
+     * @param inputStream : the stream who reads a binary catalogue
+     * @param builder : the builder used to build the list of stars
+     * @throws IOException if the stream can not be read or if it is not a binary catalogue
+     */
+    @Override
+    public void load( InputStream inputStream, StarCatalogue.Builder builder ) throws IOException
+    {
+        load( StarCatalogue.map( inputStream ), builder );
+    }
+
+    /**
+     * Adds to the catalogue builder all the stars stored in the binary catalogue
+     * @param data : the content of a binary catalogue, e.g. a memory-mapped file
+     * @param builder : the builder used to build the list of stars
+     * @throws IOException if the content is not a binary catalogue
+     */
+    @Override
+    public void load( ByteBuffer data, StarCatalogue.Builder builder ) throws IOException
+    {
+        ByteBuffer buffer = data.slice().order( BYTE_ORDER );
+
+        if ( buffer.remaining() < HEADER_BYTES || buffer.getInt( 0 ) != MAGIC || buffer.getInt( 4 ) != VERSION )
+        {
+            throw new IOException( "Not a binary star catalogue" );
+        }
+
+        int starCount = buffer.getInt( 8 );
+        int namesLength = buffer.getInt( 12 );
+        int designationsLength = buffer.getInt( 16 );
+        long expectedLength = HEADER_BYTES + (long) starCount * RECORD_BYTES + (long) namesLength + designationsLength;
+        if ( starCount < 0 || namesLength < 0 || designationsLength < 0 || buffer.limit() < expectedLength )
+        {
+            throw new IOException( "Truncated binary star catalogue" );
+        }
+        int namesStart = HEADER_BYTES + starCount * RECORD_BYTES;
+
+        // the names and designations are decoded one by one from this (reused) array
+        ByteBuffer names = buffer.duplicate().position( namesStart );
+        ByteBuffer designations = buffer.duplicate().position( namesStart + namesLength );
+        byte[] bytes = new byte[ 64 ];
+        int nameStart = 0;
+        int designationStart = 0;
+
+        for ( int i = 0; i < starCount; i++ )
+        {
+            int record = HEADER_BYTES + i * RECORD_BYTES;
+            int hipparcosId = buffer.getInt( record );
+            int nameEnd = buffer.getInt( record + 4 );
+            double ra = buffer.getDouble( record + 8 );
+            double dec = buffer.getDouble( record + 16 );
+            float magnitude = buffer.getFloat( record + 24 );
+            float colorIndex = buffer.getFloat( record + 28 );
+            int designationEnd = buffer.getInt( record + 32 );
+
+            int nameLength = nameEnd - nameStart;
+            int designationLength = designationEnd - designationStart;
+            if ( nameLength < 0 || nameEnd > namesLength
+                    || designationLength < 0 || designationEnd > designationsLength )
+            {
+                throw new IOException( "Corrupted binary star catalogue" );
+            }
+            int length = Math.max( nameLength, designationLength );
+            if ( length > bytes.length ) { bytes = new byte[ length ]; }
+
+            names.get( bytes, 0, nameLength );
+            String name = new String( bytes, 0, nameLength, US_ASCII );
+            nameStart = nameEnd;
+            designations.get( bytes, 0, designationLength );
+            String designation = new String( bytes, 0, designationLength, US_ASCII );
+            designationStart = designationEnd;
+
+            builder.addStar( hipparcosId, name, designation, ra, dec, magnitude, colorIndex );
+        }
+    }
+}
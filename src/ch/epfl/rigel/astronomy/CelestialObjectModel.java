@@ -13,7 +13,16 @@ public interface CelestialObjectModel<O>
     * @return the object O modeled by the model for the number of days after the J2010 epoch
     * and using the given conversion.
     **/
-   O at(
+   default O at(
            double daysSinceJ2010,
-           EclipticToEquatorialConversion eclipticToEquatorialConversion );
+           EclipticToEquatorialConversion eclipticToEquatorialConversion )
+   {
+      return at( new SolarSystemState( daysSinceJ2010, eclipticToEquatorialConversion ) );
+   }
+
+   /**
+    * @param state : the state of the solar system at the instant of the object
+    * @return the object O modeled by the model at the instant of the state, computed from the state
+    **/
+   O at( SolarSystemState state );
 }
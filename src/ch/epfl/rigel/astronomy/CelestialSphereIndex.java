@@ -0,0 +1,323 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Spatial index of the stars of a catalogue on the celestial sphere.
+ * The sphere is tessellated as a cube projected on it : each of the 6 faces is divided into a quadtree
+ * of cells (level l has 4^l cells per face). The cells of the deepest level are numbered face by face in
+ * Z-order, so that every node of a quadtree covers a contiguous range of cell numbers. The stars are stored
+ * sorted by cell, which makes every node a contiguous range of stars as well, and by magnitude inside a cell,
+ * which makes the stars of a cell brighter than a given magnitude a prefix of the cell.
+ * A query walks down the quadtrees, skips the nodes that do not intersect the queried cap
+ * and takes whole the nodes that are contained in it. The bounding circle of every node is computed once,
+ * when the index is built, and the walk reuses per-thread arrays, so that a query allocates nothing but its result.
+ */
+final class CelestialSphereIndex
+{
+    private static final int FACES = 6;
+    // the deepest level is chosen to have about this number of stars per cell
+    private static final int STARS_PER_CELL = 32;
+    private static final int MAX_LEVEL = 9;
+    // the cells are slightly enlarged to absorb rounding errors
+    private static final double MARGIN = 1e-9;
+
+    private final int level;
+    private final int cellsPerSide;
+    // stars of the cell c : stars[ cellStart[ c ] ] to stars[ cellStart[ c + 1 ] - 1 ]
+    private final int[] cellStart;
+    private final int[] stars;
+    // magnitude of the stars, in the order of the stars array
+    private final float[] magnitudes;
+    // bounding circle of the nodes : the node ( l, face, i, j ) has the number nodeOffset( l ) + face * 4^l
+    // + interleave( i, j ), the unit vector of its center at 4 times its number and its angular radius after it
+    private final double[] nodes;
+    // stack of the walk and ranges of the selected stars, reused by the queries of each thread
+    private final ThreadLocal<int[][]> scratch;
+
+    /**
+     * Builds the index of the stars at the given positions
+     * @param ra : right ascension of the stars
+     * @param dec : declination of the stars
+     * @param magnitude : magnitude of the stars
+     * @param size : number of stars
+     */
+    CelestialSphereIndex( double[] ra, double[] dec, float[] magnitude, int size )
+    {
+        int level = 0;
+        while ( level < MAX_LEVEL && FACES * ( 1L << ( 2 * level ) ) * STARS_PER_CELL < size ) { level++; }
+        this.level = level;
+        this.cellsPerSide = 1 << level;
+
+        // counting sort of the stars by cell, stable so that the stars of a cell stay in catalogue order
+        int cellCount = FACES * cellsPerSide * cellsPerSide;
+        int[] cellOf = new int[ size ];
+        cellStart = new int[ cellCount + 1 ];
+        for ( int i = 0; i < size; i++ )
+        {
+            double cosDec = Math.cos( dec[ i ] );
+            cellOf[ i ] = cell( cosDec * Math.cos( ra[ i ] ), cosDec * Math.sin( ra[ i ] ), Math.sin( dec[ i ] ) );
+            cellStart[ cellOf[ i ] + 1 ]++;
+        }
+        for ( int c = 0; c < cellCount; c++ )
+        {
+            cellStart[ c + 1 ] += cellStart[ c ];
+        }
+
+        int[] next = Arrays.copyOf( cellStart, cellCount );
+        stars = new int[ size ];
+        for ( int i = 0; i < size; i++ )
+        {
+            stars[ next[ cellOf[ i ] ]++ ] = i;
+        }
+
+        magnitudes = new float[ size ];
+        for ( int c = 0; c < cellCount; c++ )
+        {
+            if ( cellStart[ c + 1 ] - cellStart[ c ] > 1 )
+            {
+                MagnitudeIndex.sortByMagnitude( stars, cellStart[ c ], cellStart[ c + 1 ], magnitude );
+            }
+        }
+        for ( int k = 0; k < size; k++ )
+        {
+            magnitudes[ k ] = magnitude[ stars[ k ] ];
+        }
+
+        // the node is bounded by the circle around its center passing through its farthest corner
+        nodes = new double[ 4 * nodeOffset( level + 1 ) ];
+        for ( int l = 0; l <= level; l++ )
+        {
+            int side = 1 << l;
+            for ( int face = 0; face < FACES; face++ )
+            {
+                for ( int i = 0; i < side; i++ )
+                {
+                    for ( int j = 0; j < side; j++ )
+                    {
+                        double u0 = 2.0 * i / side - 1, u1 = 2.0 * ( i + 1 ) / side - 1;
+                        double v0 = 2.0 * j / side - 1, v1 = 2.0 * ( j + 1 ) / side - 1;
+                        double[] nodeCenter = vector( face, ( u0 + u1 ) / 2, ( v0 + v1 ) / 2 );
+                        double nodeRadius = Math.max(
+                                Math.max( angle( nodeCenter, vector( face, u0, v0 ) ), angle( nodeCenter, vector( face, u1, v0 ) ) ),
+                                Math.max( angle( nodeCenter, vector( face, u0, v1 ) ), angle( nodeCenter, vector( face, u1, v1 ) ) ) )
+                                + MARGIN;
+
+                        int node = 4 * ( nodeOffset( l ) + face * side * side + interleave( i, j ) );
+                        System.arraycopy( nodeCenter, 0, nodes, node, 3 );
+                        nodes[ node + 3 ] = nodeRadius;
+                    }
+                }
+            }
+        }
+
+        int stackLength = 4 * ( 4 * level + FACES );
+        scratch = ThreadLocal.withInitial( () -> new int[][] { new int[ stackLength ], new int[ 16 ] } );
+    }
+
+    /**
+     * @param ra : right ascension of the center of the cap
+     * @param dec : declination of the center of the cap
+     * @param radius : angular radius of the cap
+     * @return the indices (in increasing order) of the stars of all the cells intersecting the cap,
+     *         which contain at least all the stars of the cap
+     */
+    int[] starsWithin( double ra, double dec, double radius )
+    {
+        return starsWithin( ra, dec, radius, Double.POSITIVE_INFINITY );
+    }
+
+    /**
+     * @param ra : right ascension of the center of the cap
+     * @param dec : declination of the center of the cap
+     * @param radius : angular radius of the cap
+     * @param limitingMagnitude : the magnitude of the faintest stars to return
+     * @return the indices (in increasing order) of the stars brighter than the limiting magnitude of all the cells
+     *         intersecting the cap, which contain at least all the stars of the cap
+     */
+    int[] starsWithin( double ra, double dec, double radius, double limitingMagnitude )
+    {
+        return starsWithin( ra, dec, radius, limitingMagnitude, int[]::new );
+    }
+
+    /**
+     * Same as starsWithin( ra, dec, radius, limitingMagnitude ), in an array given for the number of stars
+     * @param destination : gives an array of at least the given length
+     * @return the array given by destination, the indices being in its first elements
+     */
+    int[] starsWithin( double ra, double dec, double radius, double limitingMagnitude, IntFunction<int[]> destination )
+    {
+        if ( radius >= Math.PI && limitingMagnitude == Double.POSITIVE_INFINITY )
+        {
+            int[] all = destination.apply( stars.length );
+            System.arraycopy( stars, 0, all, 0, stars.length );
+            Arrays.sort( all, 0, stars.length );
+            return all;
+        }
+
+        double cosDec = Math.cos( dec );
+        double cx = cosDec * Math.cos( ra ), cy = cosDec * Math.sin( ra ), cz = Math.sin( dec );
+        int[][] buffers = scratch.get();
+
+        // ranges of stars of the selected nodes
+        int[] ranges = buffers[ 1 ];
+        int rangeCount = 0;
+        int count = 0;
+
+        // depth first walk of the quadtrees, the stack contains the level, the face and the position of the nodes
+        int[] stack = buffers[ 0 ];
+        int top = 0;
+        for ( int face = 0; face < FACES; face++ )
+        {
+            stack[ top++ ] = 0; stack[ top++ ] = face; stack[ top++ ] = 0; stack[ top++ ] = 0;
+        }
+
+        while ( top > 0 )
+        {
+            int j = stack[ --top ], i = stack[ --top ], face = stack[ --top ], l = stack[ --top ];
+
+            int node = 4 * ( nodeOffset( l ) + ( face << ( 2 * l ) ) + interleave( i, j ) );
+            double nodeRadius = nodes[ node + 3 ];
+            double dot = cx * nodes[ node ] + cy * nodes[ node + 1 ] + cz * nodes[ node + 2 ];
+            double distance = Math.acos( Math.max( -1, Math.min( 1, dot ) ) );
+
+            if ( distance > radius + nodeRadius ) { continue; }
+
+            if ( l == level || distance + nodeRadius <= radius )
+            {
+                // all the cells of the node, which are consecutive
+                int shift = 2 * ( level - l );
+                int firstCell = face * cellsPerSide * cellsPerSide + ( interleave( i, j ) << shift );
+                for ( int c = firstCell; c < firstCell + ( 1 << shift ); c++ )
+                {
+                    // the bright enough stars of the cell
+                    int start = cellStart[ c ];
+                    int end = start;
+                    while ( end < cellStart[ c + 1 ] && magnitudes[ end ] <= limitingMagnitude ) { end++; }
+                    if ( start == end ) { continue; }
+
+                    if ( rangeCount + 2 > ranges.length )
+                    {
+                        ranges = Arrays.copyOf( ranges, 2 * ranges.length );
+                        buffers[ 1 ] = ranges;
+                    }
+                    ranges[ rangeCount++ ] = start;
+                    ranges[ rangeCount++ ] = end;
+                    count += end - start;
+                }
+                continue;
+            }
+
+            for ( int child = 0; child < 4; child++ )
+            {
+                stack[ top++ ] = l + 1; stack[ top++ ] = face;
+                stack[ top++ ] = 2 * i + ( child & 1 ); stack[ top++ ] = 2 * j + ( child >> 1 );
+            }
+        }
+
+        int[] selected = destination.apply( count );
+        int position = 0;
+        for ( int r = 0; r < rangeCount; r += 2 )
+        {
+            int length = ranges[ r + 1 ] - ranges[ r ];
+            System.arraycopy( stars, ranges[ r ], selected, position, length );
+            position += length;
+        }
+        Arrays.sort( selected, 0, count );
+        return selected;
+    }
+
+    /**
+     * @return the number of nodes of the quadtrees above the level l, which is the number of the first node of level l
+     */
+    private static int nodeOffset( int l )
+    {
+        return FACES * ( ( 1 << ( 2 * l ) ) - 1 ) / 3;
+    }
+
+    /**
+     * @return the number of the cell of the deepest level containing the point of the sphere (x, y, z)
+     */
+    private int cell( double x, double y, double z )
+    {
+        double ax = Math.abs( x ), ay = Math.abs( y ), az = Math.abs( z );
+        int face;
+        double u, v;
+        // the face is the one of the largest coordinate, the two others are projected on it
+        if ( ax >= ay && ax >= az )
+        {
+            face = x > 0 ? 0 : 1;
+            u = y / ax;
+            v = z / ax;
+        }
+        else if ( ay >= az )
+        {
+            face = y > 0 ? 2 : 3;
+            u = x / ay;
+            v = z / ay;
+        }
+        else
+        {
+            face = z > 0 ? 4 : 5;
+            u = x / az;
+            v = y / az;
+        }
+        int i = Math.min( cellsPerSide - 1, (int) ( ( u + 1 ) / 2 * cellsPerSide ) );
+        int j = Math.min( cellsPerSide - 1, (int) ( ( v + 1 ) / 2 * cellsPerSide ) );
+        return face * cellsPerSide * cellsPerSide + interleave( i, j );
+    }
+
+    /**
+     * @return the unit vector of the point (u, v) of the face, inverse of the projection done by cell
+     */
+    private static double[] vector( int face, double u, double v )
+    {
+        double sign = face % 2 == 0 ? 1 : -1;
+        double x, y, z;
+        switch ( face / 2 )
+        {
+            case 0:
+                x = sign; y = u; z = v;
+                break;
+            case 1:
+                x = u; y = sign; z = v;
+                break;
+            default:
+                x = u; y = v; z = sign;
+                break;
+        }
+        double norm = Math.sqrt( x * x + y * y + z * z );
+        return new double[] { x / norm, y / norm, z / norm };
+    }
+
+    /**
+     * @return the angle between two unit vectors
+     */
+    private static double angle( double[] a, double[] b )
+    {
+        double dot = a[ 0 ] * b[ 0 ] + a[ 1 ] * b[ 1 ] + a[ 2 ] * b[ 2 ];
+        return Math.acos( Math.max( -1, Math.min( 1, dot ) ) );
+    }
+
+    /**
+     * @return the Z-order (Morton) number of the cell (i, j) : the bits of i and j interleaved
+     */
+    private static int interleave( int i, int j )
+    {
+        return spread( i ) | ( spread( j ) << 1 );
+    }
+
+    /**
+     * @return the (at most 16) bits of the value spread on the even bits
+     */
+    private static int spread( int value )
+    {
+        int x = value & 0xFFFF;
+        x = ( x | ( x << 8 ) ) & 0x00FF00FF;
+        x = ( x | ( x << 4 ) ) & 0x0F0F0F0F;
+        x = ( x | ( x << 2 ) ) & 0x33333333;
+        x = ( x | ( x << 1 ) ) & 0x55555555;
+        return x;
+    }
+}
@@ -0,0 +1,211 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a csv file line by line, directly on its bytes.
+ * Only the columns asked for are located, and their content is parsed in place : no String is created
+ * unless explicitly asked for (e.g. for the names).
+ * The bytes come either from a stream, read through a reused buffer, or from a fixed range of a buffer.
+ */
+final class CsvScanner
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte SEPARATOR = ',';
+    private static final byte END_OF_LINE = '\n';
+
+    // the stream being read, null when scanning a fixed range
+    private final InputStream stream;
+    private final DecimalParser parser = new DecimalParser();
+    private ByteBuffer buffer;
+    // end of the valid bytes in the buffer
+    private int limit;
+    // beginning of the next line, and position from which to look for its end
+    private int next, searchFrom;
+    private boolean endOfStream;
+
+    // the current line and the current column
+    private int lineStart, lineEnd;
+    private int column, fieldStart, fieldEnd;
+
+    /**
+     * Scans the lines read by the stream
+     * @param stream : the stream to read
+     */
+    CsvScanner( InputStream stream )
+    {
+        this.stream = stream;
+        this.buffer = ByteBuffer.allocate( BUFFER_SIZE );
+        this.limit = 0;
+    }
+
+    /**
+     * Scans the lines contained in a range of the buffer
+     * @param buffer : the buffer containing the lines
+     * @param from : index of the first byte of the first line
+     * @param to : index following the last byte of the last line
+     */
+    CsvScanner( ByteBuffer buffer, int from, int to )
+    {
+        this.stream = null;
+        this.buffer = buffer;
+        this.limit = to;
+        this.next = from;
+        this.searchFrom = from;
+        this.endOfStream = true;
+    }
+
+    /**
+     * Moves to the next line, at its first column
+     * @return false if there is no line left
+     * @throws IOException in case of input/output error
+     */
+    boolean nextLine() throws IOException
+    {
+        while ( true )
+        {
+            int end = indexOf( END_OF_LINE, searchFrom, limit );
+            if ( end < limit )
+            {
+                startLine( next, end );
+                next = searchFrom = end + 1;
+                return true;
+            }
+            if ( endOfStream )
+            {
+                if ( next == limit ) { return false; }
+                // last line, without end of line
+                startLine( next, limit );
+                next = searchFrom = limit;
+                return true;
+            }
+            searchFrom = limit;
+            fill();
+        }
+    }
+
+    /**
+     * Moves forward to the given column of the current line. A column missing at the end of the line is empty.
+     * @param index : index of the column, which must not be before the current column
+     */
+    void column( int index )
+    {
+        while ( column < index )
+        {
+            if ( fieldEnd == lineEnd )
+            {
+                fieldStart = lineEnd;
+                column = index;
+                return;
+            }
+            fieldStart = fieldEnd + 1;
+            fieldEnd = indexOf( SEPARATOR, fieldStart, lineEnd );
+            column++;
+        }
+    }
+
+    /**
+     * @return the index of the first byte of the current column
+     */
+    int fieldStart() { return fieldStart; }
+
+    /**
+     * @return the index following the last byte of the current column
+     */
+    int fieldEnd() { return fieldEnd; }
+
+    /**
+     * @return true if the current column is empty
+     */
+    boolean isEmpty() { return fieldStart == fieldEnd; }
+
+    /**
+     * @return the current column parsed as an int
+     * @throws NumberFormatException if the column does not contain an int
+     */
+    int parseInt() { return parser.parseInt( buffer, fieldStart, fieldEnd ); }
+
+    /**
+     * @return the current column parsed as a double
+     * @throws NumberFormatException if the column does not contain a double
+     */
+    double parseDouble() { return parser.parseDouble( buffer, fieldStart, fieldEnd ); }
+
+    /**
+     * @return the current column parsed as a float
+     * @throws NumberFormatException if the column does not contain a float
+     */
+    float parseFloat() { return parser.parseFloat( buffer, fieldStart, fieldEnd ); }
+
+    /**
+     * Appends the (ASCII) bytes between start and end of the current line to the builder
+     * @param builder : the builder to append to
+     * @param start : index of the first byte
+     * @param end : index following the last byte
+     * @return the builder
+     */
+    StringBuilder appendTo( StringBuilder builder, int start, int end )
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            builder.append( (char) buffer.get( i ) );
+        }
+        return builder;
+    }
+
+    /**
+     * Initialises the current line and its first column
+     */
+    private void startLine( int start, int end )
+    {
+        // ignore the carriage return of windows line endings
+        if ( end > start && buffer.get( end - 1 ) == '\r' ) { end--; }
+        lineStart = start;
+        lineEnd = end;
+        column = 0;
+        fieldStart = lineStart;
+        fieldEnd = indexOf( SEPARATOR, lineStart, lineEnd );
+    }
+
+    /**
+     * @return the index of the first occurrence of the byte between from and to, or to if there is none
+     */
+    private int indexOf( byte b, int from, int to )
+    {
+        int i = from;
+        while ( i < to && buffer.get( i ) != b ) { i++; }
+        return i;
+    }
+
+    /**
+     * Moves the beginning of the next line to the start of the buffer (or grows it if the line is longer than
+     * the buffer) and reads as many bytes from the stream as possible after it
+     * @throws IOException in case of input/output error
+     */
+    private void fill() throws IOException
+    {
+        int pending = limit - next;
+        byte[] bytes = buffer.array();
+        if ( pending == bytes.length )
+        {
+            byte[] grown = new byte[ 2 * bytes.length ];
+            System.arraycopy( bytes, next, grown, 0, pending );
+            bytes = grown;
+            buffer = ByteBuffer.wrap( bytes );
+        }
+        else
+        {
+            System.arraycopy( bytes, next, bytes, 0, pending );
+        }
+
+        searchFrom -= next;
+        next = 0;
+        limit = pending;
+
+        int read = stream.read( bytes, limit, bytes.length - limit );
+        if ( read < 0 ) { endOfStream = true; }
+        else { limit += read; }
+    }
+}
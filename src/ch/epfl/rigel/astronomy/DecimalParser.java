@@ -0,0 +1,280 @@
+package ch.epfl.rigel.astronomy;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Parses ASCII numbers directly from the bytes of a buffer, without creating any String.
+ * Doubles are correctly rounded (same result as Double.parseDouble) : the mantissa and the decimal exponent are
+ * read in place, then converted either exactly (Clinger's fast path) or with the Eisel-Lemire algorithm.
+ * Anything unusual (too many digits, hexadecimal, NaN, whitespace, ...) falls back to the java parsers,
+ * which also take care of throwing the NumberFormatException.
+ * An instance keeps the number being read in its attributes, it must therefore not be shared between threads.
+ */
+final class DecimalParser
+{
+    // range of decimal exponents for which the 128 bits powers of five give an exact result
+    private static final int MIN_EXPONENT = -27;
+    private static final int MAX_EXPONENT = 55;
+    // the mantissa must fit in an unsigned long
+    private static final int MAX_DIGITS = 19;
+    // exactly representable powers of ten
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // a float is correctly rounded from the (correctly rounded) double as long as the mantissa is short enough
+    private static final int MAX_FLOAT_DIGITS = 8;
+    private static final int MAX_FLOAT_EXPONENT = 10;
+    // 128 bits approximations of the powers of five, high and low words
+    private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+    // the last decimal number read : (-1)^negative * mantissa * 10^exponent
+    private boolean negative;
+    // unsigned mantissa and number of significant digits
+    private long mantissa;
+    private int digits;
+    private int exponent;
+
+    /**
+     * @param buffer : the buffer containing the number
+     * @param start : index of the first character (included)
+     * @param end : index of the last character (excluded)
+     * @return the integer written in the buffer between start and end
+     * @throws NumberFormatException if the characters do not represent an int
+     */
+    int parseInt( ByteBuffer buffer, int start, int end )
+    {
+        int i = start;
+        boolean negative = i < end && buffer.get( i ) == '-';
+        if ( negative || ( i < end && buffer.get( i ) == '+' ) ) { i++; }
+
+        // at most 9 digits can not overflow
+        if ( i == end || end - i > 9 ) { return Integer.parseInt( string( buffer, start, end ) ); }
+
+        int value = 0;
+        for ( ; i < end; i++ )
+        {
+            int digit = buffer.get( i ) - '0';
+            if ( digit < 0 || digit > 9 ) { return Integer.parseInt( string( buffer, start, end ) ); }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param buffer : the buffer containing the number
+     * @param start : index of the first character (included)
+     * @param end : index of the last character (excluded)
+     * @return the double written in the buffer between start and end, as Double.parseDouble would return it
+     * @throws NumberFormatException if the characters do not represent a double
+     */
+    double parseDouble( ByteBuffer buffer, int start, int end )
+    {
+        if ( !read( buffer, start, end ) ) { return Double.parseDouble( string( buffer, start, end ) ); }
+
+        double value = toDouble();
+        if ( Double.isNaN( value ) ) { return Double.parseDouble( string( buffer, start, end ) ); }
+        return value;
+    }
+
+    /**
+     * @param buffer : the buffer containing the number
+     * @param start : index of the first character (included)
+     * @param end : index of the last character (excluded)
+     * @return the float written in the buffer between start and end, as Float.parseFloat would return it
+     * @throws NumberFormatException if the characters do not represent a float
+     */
+    float parseFloat( ByteBuffer buffer, int start, int end )
+    {
+        if ( !read( buffer, start, end ) || digits > MAX_FLOAT_DIGITS || Math.abs( exponent ) > MAX_FLOAT_EXPONENT )
+        {
+            return Float.parseFloat( string( buffer, start, end ) );
+        }
+        return (float) toDouble();
+    }
+
+    /**
+     * Reads [+-]digits[.digits][(e|E)[+-]digits]
+     * @return false if the characters do not follow this simple syntax, or if the mantissa is too long
+     */
+    private boolean read( ByteBuffer buffer, int start, int end )
+    {
+        mantissa = 0;
+        digits = 0;
+        exponent = 0;
+
+        int i = start;
+        negative = i < end && buffer.get( i ) == '-';
+        if ( negative || ( i < end && buffer.get( i ) == '+' ) ) { i++; }
+
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for ( ; i < end; i++ )
+        {
+            byte c = buffer.get( i );
+            if ( c == '.' && !fraction )
+            {
+                fraction = true;
+                continue;
+            }
+            int digit = c - '0';
+            if ( digit < 0 || digit > 9 ) { break; }
+
+            anyDigit = true;
+            if ( fraction ) { exponent--; }
+            // leading zeros are not significant
+            if ( digits == 0 && digit == 0 ) { continue; }
+            if ( ++digits > MAX_DIGITS ) { return false; }
+            mantissa = mantissa * 10 + digit;
+        }
+        if ( !anyDigit ) { return false; }
+
+        if ( i < end && ( buffer.get( i ) == 'e' || buffer.get( i ) == 'E' ) )
+        {
+            i++;
+            boolean negativeExponent = i < end && buffer.get( i ) == '-';
+            if ( negativeExponent || ( i < end && buffer.get( i ) == '+' ) ) { i++; }
+            // more than 4 digits is far beyond the range of a double anyway
+            if ( i == end || end - i > 4 ) { return false; }
+
+            int explicitExponent = 0;
+            for ( ; i < end; i++ )
+            {
+                int digit = buffer.get( i ) - '0';
+                if ( digit < 0 || digit > 9 ) { return false; }
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        return i == end;
+    }
+
+    /**
+     * @return the closest double to the decimal, or NaN if it can not be computed here
+     */
+    private double toDouble()
+    {
+        if ( mantissa == 0 ) { return negative ? -0d : 0d; }
+
+        double value;
+        if ( Long.compareUnsigned( mantissa, MAX_EXACT_MANTISSA ) <= 0
+                && exponent >= -22 && exponent <= 22 )
+        {
+            // Clinger's fast path : both the mantissa and the power of ten are exact doubles
+            value = exponent < 0 ?
+                    mantissa / POWERS_OF_TEN[ -exponent ] :
+                    mantissa * POWERS_OF_TEN[ exponent ];
+        }
+        else
+        {
+            value = eiselLemire( mantissa, exponent );
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Eisel-Lemire algorithm : multiplies the normalised mantissa by a 128 bits approximation of 5^q
+     * and rounds the result, which is always exact for q in [MIN_EXPONENT, MAX_EXPONENT]
+     * @param w : unsigned non-zero mantissa
+     * @param q : decimal exponent
+     * @return the double closest to w * 10^q, or NaN if it is out of the handled range
+     */
+    private static double eiselLemire( long w, int q )
+    {
+        if ( q < MIN_EXPONENT || q > MAX_EXPONENT ) { return Double.NaN; }
+
+        int leadingZeros = Long.numberOfLeadingZeros( w );
+        w <<= leadingZeros;
+
+        int index = 2 * ( q - MIN_EXPONENT );
+        long high = unsignedMultiplyHigh( w, POWERS_OF_FIVE[ index ] );
+        long low = w * POWERS_OF_FIVE[ index ];
+        // the truncated product is not precise enough, use the low word of the power of five as well
+        if ( ( high & 0x1FF ) == 0x1FF )
+        {
+            long secondHigh = unsignedMultiplyHigh( w, POWERS_OF_FIVE[ index + 1 ] );
+            low += secondHigh;
+            if ( Long.compareUnsigned( secondHigh, low ) > 0 ) { high++; }
+        }
+
+        int upperBit = (int) ( high >>> 63 );
+        long mantissa = high >>> ( upperBit + 9 );
+        int power2 = ( ( ( 152170 + 65536 ) * q ) >> 16 ) + 63 + upperBit - leadingZeros + 1023;
+        // subnormal numbers are left to Double.parseDouble
+        if ( power2 <= 0 ) { return Double.NaN; }
+
+        // exactly between two doubles : round to even instead of up
+        if ( Long.compareUnsigned( low, 1 ) <= 0 && q >= -4 && q <= 23 && ( mantissa & 3 ) == 1
+                && ( mantissa << ( upperBit + 9 ) ) == high )
+        {
+            mantissa &= ~1L;
+        }
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if ( mantissa >= ( 2L << 52 ) )
+        {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~( 1L << 52 );
+
+        if ( power2 >= 0x7FF ) { return Double.NaN; }
+        return Double.longBitsToDouble( mantissa | ( (long) power2 << 52 ) );
+    }
+
+    /**
+     * @return the high word of the unsigned 128 bits product of a and b
+     */
+    private static long unsignedMultiplyHigh( long a, long b )
+    {
+        return Math.multiplyHigh( a, b ) + ( ( a >> 63 ) & b ) + ( ( b >> 63 ) & a );
+    }
+
+    /**
+     * Computes the 128 bits powers of five used by the Eisel-Lemire algorithm :
+     * 5^q normalised so that its most significant bit is the 128th one (rounded up for negative q)
+     * @return the high and low words of each power, from MIN_EXPONENT to MAX_EXPONENT
+     */
+    private static long[] powersOfFive()
+    {
+        long[] powers = new long[ 2 * ( MAX_EXPONENT - MIN_EXPONENT + 1 ) ];
+        BigInteger five = BigInteger.valueOf( 5 );
+
+        for ( int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++ )
+        {
+            BigInteger power;
+            if ( q < 0 )
+            {
+                BigInteger inverse = five.pow( -q );
+                power = BigInteger.ONE.shiftLeft( inverse.bitLength() + 127 ).divide( inverse ).add( BigInteger.ONE );
+            }
+            else
+            {
+                power = five.pow( q );
+                int shift = 128 - power.bitLength();
+                power = shift >= 0 ? power.shiftLeft( shift ) : power.shiftRight( -shift );
+            }
+            int index = 2 * ( q - MIN_EXPONENT );
+            powers[ index ] = power.shiftRight( 64 ).longValue();
+            powers[ index + 1 ] = power.longValue();
+        }
+        return powers;
+    }
+
+    /**
+     * @return the characters between start and end as a String, only used when falling back to the java parsers
+     */
+    private static String string( ByteBuffer buffer, int start, int end )
+    {
+        byte[] bytes = new byte[ end - start ];
+        for ( int i = start; i < end; i++ )
+        {
+            bytes[ i - start ] = buffer.get( i );
+        }
+        return new String( bytes, US_ASCII );
+    }
+}
@@ -0,0 +1,254 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.ChebyshevSeries;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ephemeris of the Sun, the Moon and the planets, which replaces their analytic models by Chebyshev series
+ * fitted on windows of fixed length. The values of the objects (ecliptic coordinates, angular size, magnitude, ...)
+ * are then given by the evaluation of a few short polynomials, which is much cheaper when the sky is computed
+ * for many close instants (fast animation of the time, searches).
+ * The series of a window are fitted when it is used for the first time, with the lowest degree keeping the error
+ * under the given bound, and the least recently used windows are forgotten when there are too many. An object
+ * which can not be approximated well enough on a window (near a singularity of its model) keeps its analytic
+ * model on this window.
+ */
+public final class Ephemeris
+{
+    // degrees of the series tried for each window, in increasing order
+    private static final int[] DEGREES = { 7, 15, 31 };
+
+    /**
+     * Ephemeris computing the objects by their analytic models, without any approximation
+     */
+    public static final Ephemeris ANALYTIC = new Ephemeris();
+
+    // the objects of the ephemeris : the Sun, the Moon and the planets without the Earth
+    private final List<EphemerisModel<?>> models;
+    private final double windowDays;
+    private final double maxError;
+    // the series of the values of each object for the windows used, by index of the window and in access order,
+    // or null for an object keeping its analytic model on a window
+    private final Map<Long, ChebyshevSeries[][]> windows;
+    // number of windows fitted up to now, including the ones fitted again after being forgotten
+    private int fitCount;
+
+    /**
+     * Builds the ephemeris keeping the analytic models
+     */
+    private Ephemeris()
+    {
+        this.models = List.of();
+        this.windowDays = 0;
+        this.maxError = 0;
+        this.windows = null;
+    }
+
+    /**
+     * Builds an empty ephemeris, its windows are fitted when needed
+     * throw IllegalArgumentException if the length of the windows or the error bound is not strictly positive,
+     * or if the capacity is not at least 1
+     * @param windowDays : the length of the windows, in days
+     * @param maxError : the maximum error of every value of the objects : in radians for the angles,
+     *                 and in magnitude for the magnitudes
+     * @param capacity : the maximum number of windows kept
+     */
+    public Ephemeris( double windowDays, double maxError, int capacity )
+    {
+        Preconditions.checkArgument( windowDays > 0 && maxError > 0 && capacity >= 1 );
+        this.windowDays = windowDays;
+        this.maxError = maxError;
+
+        this.models = new ArrayList<>();
+        models.add( SunModel.SUN );
+        models.add( MoonModel.MOON );
+        for ( PlanetModel planet : PlanetModel.ALL )
+        {
+            if ( planet != PlanetModel.EARTH ) { models.add( planet ); }
+        }
+
+        this.windows = new LinkedHashMap<>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Long, ChebyshevSeries[][]> eldest )
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param state : the state of the solar system at the instant
+     * @return the Sun at the instant of the state
+     */
+    public Sun sun( SolarSystemState state ) { return at( SunModel.SUN, state ); }
+
+    /**
+     * @param state : the state of the solar system at the instant
+     * @return the Moon at the instant of the state
+     */
+    public Moon moon( SolarSystemState state ) { return at( MoonModel.MOON, state ); }
+
+    /**
+     * throw IllegalArgumentException if the planet is the Earth
+     * @param planet : the model of the planet
+     * @param state : the state of the solar system at the instant
+     * @return the planet at the instant of the state
+     */
+    public Planet planet( PlanetModel planet, SolarSystemState state )
+    {
+        Preconditions.checkArgument( planet != PlanetModel.EARTH );
+        return at( planet, state );
+    }
+
+    /**
+     * @return the number of windows currently kept
+     */
+    public synchronized int windowCount() { return windows == null ? 0 : windows.size(); }
+
+    /**
+     * @return the number of windows fitted up to now, a forgotten window being fitted again when it is used
+     */
+    synchronized int fitCount() { return fitCount; }
+
+    /**
+     * @param model : the model of the object
+     * @param state : the state of the solar system at the instant
+     * @return the object at the instant, given by the series of its window if it has some, by its model otherwise
+     */
+    private <O extends CelestialObject> O at( EphemerisModel<O> model, SolarSystemState state )
+    {
+        if ( windows == null ) { return model.at( state ); }
+
+        double position = state.daysSinceJ2010() / windowDays;
+        long index = (long) Math.floor( position );
+        ChebyshevSeries[] series = window( index )[ models.indexOf( model ) ];
+        if ( series == null ) { return model.at( state ); }
+
+        double x = 2 * ( position - index ) - 1;
+        double[] values = new double[ EphemerisModel.VALUE_COUNT ];
+        for ( int v = 0; v < values.length; v++ )
+        {
+            values[ v ] = series[ v ].at( x );
+        }
+        return model.of( values, state.eclipticToEquatorialConversion() );
+    }
+
+    /**
+     * @param index : the index of the window
+     * @return the series of the objects on the window, which are fitted if the window is not kept
+     */
+    private synchronized ChebyshevSeries[][] window( long index )
+    {
+        ChebyshevSeries[][] series = windows.get( index );
+        if ( series == null )
+        {
+            series = fit( index * windowDays );
+            windows.put( index, series );
+            fitCount++;
+        }
+        return series;
+    }
+
+    /**
+     * @param start : the first day of the window
+     * @return the series of the objects on the window starting at the given day
+     */
+    private ChebyshevSeries[][] fit( double start )
+    {
+        ChebyshevSeries[][] series = new ChebyshevSeries[ models.size() ][];
+        boolean[] fitted = new boolean[ models.size() ];
+
+        for ( int degree : DEGREES )
+        {
+            int count = degree + 1;
+            // values at the nodes, and between the nodes where the error of the interpolation is checked
+            double[][][] values = values( start, count, false );
+            double[][][] checks = values( start, count - 1, true );
+
+            for ( int object = 0; object < models.size(); object++ )
+            {
+                if ( fitted[ object ] ) { continue; }
+
+                ChebyshevSeries[] objectSeries = new ChebyshevSeries[ EphemerisModel.VALUE_COUNT ];
+                boolean accurate = true;
+                for ( int v = 0; v < objectSeries.length && accurate; v++ )
+                {
+                    if ( v == EphemerisModel.LON ) { unwrap( values[ object ][ v ] ); }
+                    objectSeries[ v ] = ChebyshevSeries.fit( values[ object ][ v ] );
+
+                    for ( int k = 0; k < count - 1 && accurate; k++ )
+                    {
+                        double error = objectSeries[ v ].at( checkPoint( k, count ) ) - checks[ object ][ v ][ k ];
+                        if ( v == EphemerisModel.LON ) { error -= Angle.TAU * Math.rint( error / Angle.TAU ); }
+                        // the error is not a number if the model is singular
+                        accurate = Math.abs( error ) <= maxError;
+                    }
+                }
+
+                if ( accurate )
+                {
+                    series[ object ] = objectSeries;
+                    fitted[ object ] = true;
+                }
+            }
+        }
+        return series;
+    }
+
+    /**
+     * @param start : the first day of the window
+     * @param count : the number of points
+     * @param checkPoints : whether the points are the check points between the count + 1 nodes, or the count nodes
+     * @return the values of each object at the points of the window : [ object ][ value ][ point ]
+     */
+    private double[][][] values( double start, int count, boolean checkPoints )
+    {
+        double[][][] values = new double[ models.size() ][ EphemerisModel.VALUE_COUNT ][ count ];
+        double[] objectValues = new double[ EphemerisModel.VALUE_COUNT ];
+        for ( int k = 0; k < count; k++ )
+        {
+            double x = checkPoints ? checkPoint( k, count + 1 ) : ChebyshevSeries.node( k, count );
+            // the values of the objects do not depend on the conversion
+            SolarSystemState state = new SolarSystemState( start + ( x + 1 ) / 2 * windowDays, null );
+            for ( int object = 0; object < models.size(); object++ )
+            {
+                models.get( object ).values( state, objectValues );
+                for ( int v = 0; v < objectValues.length; v++ )
+                {
+                    values[ object ][ v ][ k ] = objectValues[ v ];
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param k : index of the point, in [0, count - 1[
+     * @param count : number of nodes
+     * @return the point between the nodes k and k + 1, where the error of the interpolation is the largest
+     */
+    private static double checkPoint( int k, int count )
+    {
+        return Math.cos( Math.PI * ( k + 1 ) / count );
+    }
+
+    /**
+     * Removes the jumps of a turn between consecutive angles, so that they vary continuously
+     * @param angles : the angles, in radians
+     */
+    private static void unwrap( double[] angles )
+    {
+        for ( int k = 1; k < angles.length; k++ )
+        {
+            double delta = angles[ k ] - angles[ k - 1 ];
+            angles[ k ] -= Angle.TAU * Math.rint( delta / Angle.TAU );
+        }
+    }
+}
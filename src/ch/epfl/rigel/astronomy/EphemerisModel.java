@@ -0,0 +1,40 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+
+/**
+ * Model of an object of the solar system whose position and appearance are given by a few values varying smoothly
+ * with the time, which the ephemeris can approximate by polynomials
+ */
+interface EphemerisModel<O extends CelestialObject> extends CelestialObjectModel<O>
+{
+    // indices of the values : the ecliptic longitude (not reduced) and latitude, the angular size, the magnitude
+    // and a value depending on the object (the mean anomaly of the Sun, the phase of the Moon)
+    int LON = 0, LAT = 1, ANGULAR_SIZE = 2, MAGNITUDE = 3, EXTRA = 4;
+    int VALUE_COUNT = 5;
+
+    /**
+     * @param state : the state of the solar system, its conversion is not used
+     * @param values : the array receiving the values of the object at the instant of the state
+     */
+    void values( SolarSystemState state, double[] values );
+
+    /**
+     * @param values : the values of the object at an instant
+     * @param eclipticToEquatorialConversion : Conversion used to get its equatorial coordinates from its ecliptic coordinates
+     * @return the object having these values
+     */
+    O of( double[] values, EclipticToEquatorialConversion eclipticToEquatorialConversion );
+
+    /**
+     * @param state : the state of the solar system at the instant of the object
+     * @return the object at the instant of the state, built from its values
+     */
+    @Override
+    default O at( SolarSystemState state )
+    {
+        double[] values = new double[ VALUE_COUNT ];
+        values( state, values );
+        return of( values, state.eclipticToEquatorialConversion() );
+    }
+}
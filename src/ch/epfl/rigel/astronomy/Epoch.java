@@ -8,12 +8,19 @@ import java.time.temporal.ChronoUnit;
 
 /**
  * Represents an astronomical epoch. Its values represent the two epochs we use as reference for the calculations
+ * The instants can be given as ZonedDateTime, or as a number of milliseconds since 1970-01-01T00:00Z
+ * (see epochMillis), which is computed once and then used without creating any object.
  */
 public enum Epoch {
     J2000( LocalDateTime.of( 2000, Month.JANUARY, 1, 12, 0 ) ),
     J2010( LocalDateTime.of( 2010, Month.JANUARY, 1, 0, 0 ).minusDays(1) );
 
+    // number of milliseconds in a day
+    private static final double MILLIS_PER_DAY = 86400000;
+
     private final LocalDateTime date;
+    // the epoch in milliseconds since 1970-01-01T00:00Z
+    private final long millis;
 
     /**
      * @param date : LocalDateTime
@@ -21,6 +28,16 @@ public enum Epoch {
     Epoch( LocalDateTime date )
     {
         this.date = date;
+        this.millis = date.toInstant( ZoneOffset.UTC ).toEpochMilli();
+    }
+
+    /**
+     * @param when : the date and time with time zones
+     * @return the number of milliseconds between 1970-01-01T00:00Z and the parameter when
+     */
+    public static long epochMillis( ZonedDateTime when )
+    {
+        return when.toInstant().toEpochMilli();
     }
 
     /**
@@ -30,7 +47,16 @@ public enum Epoch {
     public double daysUntil( ZonedDateTime when )
     {
         double millis = this.date.until( when.withZoneSameInstant(ZoneOffset.UTC ), ChronoUnit.MILLIS );
-        return millis / 86400000; // convert milliseconds in days
+        return millis / MILLIS_PER_DAY; // convert milliseconds in days
+    }
+
+    /**
+     * @param epochMillis : the instant, in milliseconds since 1970-01-01T00:00Z
+     * @return the number of days between the Epoch where is apply and the instant
+     */
+    public double daysUntil( long epochMillis )
+    {
+        return ( epochMillis - millis ) / MILLIS_PER_DAY;
     }
 
     /**
@@ -42,4 +68,13 @@ public enum Epoch {
         double days = daysUntil( when.withZoneSameInstant( ZoneOffset.UTC ) );
         return days / 36525; // convert days in julian century
     }
+
+    /**
+     * @param epochMillis : the instant, in milliseconds since 1970-01-01T00:00Z
+     * @return the number of julians century between the Epoch where is apply and the instant
+     */
+    public double julianCenturiesUntil( long epochMillis )
+    {
+        return daysUntil( epochMillis ) / 36525; // convert days in julian century
+    }
 }
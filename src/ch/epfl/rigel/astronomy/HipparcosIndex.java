@@ -0,0 +1,112 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+
+/**
+ * Associates Hipparcos ids to indices of stars in a catalogue, without boxing them :
+ * an open addressing hash table (linear probing) stored in two primitive arrays.
+ * As with a map, adding an id already present replaces its index.
+ */
+final class HipparcosIndex
+{
+    // index of an empty slot, and value returned for an absent id
+    static final int ABSENT = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    // the table is grown when it becomes half full
+    private static final int MAX_LOAD_DIVISOR = 2;
+
+    private int[] ids;
+    private int[] indices;
+    private int size;
+    // log2 of the capacity, used by the hash function
+    private int bits;
+
+    HipparcosIndex()
+    {
+        this.bits = Integer.numberOfTrailingZeros( INITIAL_CAPACITY );
+        this.ids = new int[ INITIAL_CAPACITY ];
+        this.indices = new int[ INITIAL_CAPACITY ];
+        Arrays.fill( indices, ABSENT );
+    }
+
+    /**
+     * Creates a copy of the given index, which is not affected by later changes of the original
+     */
+    private HipparcosIndex( HipparcosIndex index )
+    {
+        this.bits = index.bits;
+        this.ids = index.ids.clone();
+        this.indices = index.indices.clone();
+        this.size = index.size;
+    }
+
+    /**
+     * @return an independent copy of this index
+     */
+    HipparcosIndex copy() { return new HipparcosIndex( this ); }
+
+    /**
+     * Associates the given index to the Hipparcos id, replacing the previous one if there is one
+     * @param hipparcosId : the Hipparcos id of a star
+     * @param index : the (non negative) index of the star
+     */
+    void put( int hipparcosId, int index )
+    {
+        int slot = slot( hipparcosId );
+        if ( indices[ slot ] == ABSENT )
+        {
+            if ( ++size * MAX_LOAD_DIVISOR > ids.length )
+            {
+                grow();
+                slot = slot( hipparcosId );
+            }
+            ids[ slot ] = hipparcosId;
+        }
+        indices[ slot ] = index;
+    }
+
+    /**
+     * @param hipparcosId : the Hipparcos id of a star
+     * @return the index associated to the id, or ABSENT if there is none
+     */
+    int get( int hipparcosId ) { return indices[ slot( hipparcosId ) ]; }
+
+    /**
+     * @return the slot containing the id, or the empty slot where it should be added
+     */
+    private int slot( int hipparcosId )
+    {
+        int mask = ids.length - 1;
+        // Fibonacci hashing spreads the (mostly consecutive) ids over the table
+        int slot = ( hipparcosId * 0x9E3779B9 ) >>> ( Integer.SIZE - bits );
+        while ( indices[ slot ] != ABSENT && ids[ slot ] != hipparcosId )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity of the table and adds back all its entries
+     */
+    private void grow()
+    {
+        int[] oldIds = ids;
+        int[] oldIndices = indices;
+
+        bits++;
+        ids = new int[ oldIds.length * 2 ];
+        indices = new int[ oldIds.length * 2 ];
+        Arrays.fill( indices, ABSENT );
+
+        for ( int i = 0; i < oldIds.length; i++ )
+        {
+            if ( oldIndices[ i ] != ABSENT )
+            {
+                int slot = slot( oldIds[ i ] );
+                ids[ slot ] = oldIds[ i ];
+                indices[ slot ] = oldIndices[ i ];
+            }
+        }
+    }
+}
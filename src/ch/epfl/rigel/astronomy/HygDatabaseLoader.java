@@ -1,18 +1,13 @@
 package ch.epfl.rigel.astronomy;
 
-import ch.epfl.rigel.coordinates.EquatorialCoordinates;
-
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-
-import static java.nio.charset.StandardCharsets.US_ASCII;
+import java.nio.ByteBuffer;
 
 /**
  * Represents a HYG catalogue loader
  */
-public enum HygDatabaseLoader implements StarCatalogue.Loader
+public enum HygDatabaseLoader implements StarCatalogue.ChunkedLoader
 {
     INSTANCE();
 
@@ -37,43 +32,109 @@ public enum HygDatabaseLoader implements StarCatalogue.Loader
     public void load( InputStream inputStream, StarCatalogue.Builder builder ) throws IOException
     {
         // using the try-with-resource method so we do not need to close the stream explicitly
-        try ( BufferedReader stream = new BufferedReader( new InputStreamReader( inputStream, US_ASCII ) ) )
+        try ( InputStream stream = inputStream )
         {
-            String line = stream.readLine(); // read the first line now because we don't need it (it is the columns name)
-            String[] starInfo; // stores each line read
+            CsvScanner scanner = new CsvScanner( stream );
+            scanner.nextLine(); // read the first line now because we don't need it (it is the columns name)
+            loadLines( scanner, builder );
+        }
+    }
 
-            while( ( line = stream.readLine() ) != null )
-            {
-                starInfo = line.split( "," );
-                String hipIndex = starInfo[ HIP_INDEX ];
-                String properIndex = starInfo[ PROPER_INDEX ];
-                String bayerIndex = starInfo[ BAYER_INDEX ];
-                String magIndex = starInfo[ MAG_INDEX ];
-                String ciIndex = starInfo[ CI_INDEX ];
+    /**
+     * @param data : the whole content of the csv file
+     * @return the index of the line following the columns name
+     * @throws IOException if the file does not contain any end of line
+     */
+    @Override
+    public int firstRecord( ByteBuffer data ) throws IOException
+    {
+        for ( int i = data.position(); i < data.limit(); i++ )
+        {
+            if ( data.get( i ) == '\n' ) { return i + 1; }
+        }
+        throw new IOException( "missing the columns name line" );
+    }
+
+    /**
+     * Adds to the catalogue builder all the stars of the lines between from and to
+     * @param data : the whole content of the csv file
+     * @param from : index of the first byte of the first line
+     * @param to : index following the last byte of the last line
+     * @param builder : the builder of the chunk
+     * @throws IOException in case of input/output error
+     */
+    @Override
+    public void loadChunk( ByteBuffer data, int from, int to, StarCatalogue.Builder builder ) throws IOException
+    {
+        loadLines( new CsvScanner( data, from, to ), builder );
+    }
+
+    /**
+     * Adds to the builder a star for each line left in the scanner.
+     * Only the columns we need are read (in increasing order), and they are parsed in place
+     * so that the only object created per line is the name of the star.
+     * @param scanner : the scanner positioned before the first line to read
+     * @param builder : the builder used to build the list of stars
+     * @throws IOException in case of input/output error
+     */
+    private static void loadLines( CsvScanner scanner, StarCatalogue.Builder builder ) throws IOException
+    {
+        StringBuilder name = new StringBuilder();
+        StringBuilder designation = new StringBuilder();
 
-                // get the hipparcos ID (0 by default)
-                int hipparcosId = ( hipIndex.equals( "" ) ) ? 0 : Integer.parseInt( hipIndex );
+        while ( scanner.nextLine() )
+        {
+            // get the hipparcos ID (0 by default)
+            scanner.column( HIP_INDEX );
+            int hipparcosId = scanner.isEmpty() ? 0 : scanner.parseInt();
 
-                // get the star name, if the proper name is empty, it consists of a concatenation between
-                // the "Bayer" name and the "Con" name. (? by default)
-                String name = ( properIndex.equals( "" ) ) ?
-                        ( bayerIndex.equals( "" ) ? "?" : bayerIndex ) + " " + starInfo[ CON_INDEX ] :
-                        properIndex;
+            // the proper name is only located for now, the name is built once we know the bayer and con columns
+            scanner.column( PROPER_INDEX );
+            int properStart = scanner.fieldStart();
+            int properEnd = scanner.fieldEnd();
 
-                // get the star equatorial coordinates
-                EquatorialCoordinates equatorialPos = EquatorialCoordinates.of(
-                        Double.parseDouble( starInfo[ RARAD_INDEX ] ),
-                        Double.parseDouble( starInfo[ DECRAD_INDEX ] ) );
+            // get the star magnitude (0 by default)
+            scanner.column( MAG_INDEX );
+            float magnitude = scanner.isEmpty() ? 0 : scanner.parseFloat();
 
-                // get the star magnitude (0 by default)
-                float magnitude = ( magIndex.equals( "" ) ) ? 0 : Float.parseFloat( magIndex );
+            // get the star color index (0 by default)
+            scanner.column( CI_INDEX );
+            float colorIndex = scanner.isEmpty() ? 0 : scanner.parseFloat();
 
-                // get the star color index (0 by default)
-                float colorIndex = ( ciIndex.equals( "" ) ) ? 0 : Float.parseFloat( ciIndex );
+            // get the star equatorial coordinates
+            scanner.column( RARAD_INDEX );
+            double ra = scanner.parseDouble();
+            scanner.column( DECRAD_INDEX );
+            double dec = scanner.parseDouble();
 
-                // create a new star based on what we read and add it to the list of stars through the builder.
-                builder.addStar( new Star( hipparcosId, name, equatorialPos, magnitude, colorIndex ) );
+            // get the star name, if the proper name is empty, it consists of a concatenation between
+            // the "Bayer" name and the "Con" name. (? by default)
+            name.setLength( 0 );
+            designation.setLength( 0 );
+            scanner.column( BAYER_INDEX );
+            boolean hasBayer = !scanner.isEmpty();
+            if ( properStart == properEnd )
+            {
+                if ( hasBayer ) { scanner.appendTo( name, scanner.fieldStart(), scanner.fieldEnd() ); }
+                else { name.append( '?' ); }
+                name.append( ' ' );
+                scanner.column( CON_INDEX );
+                scanner.appendTo( name, scanner.fieldStart(), scanner.fieldEnd() );
             }
+            else
+            {
+                scanner.appendTo( name, properStart, properEnd );
+                // the Bayer designation of a star with a proper name is kept as well, for the search
+                if ( hasBayer )
+                {
+                    scanner.appendTo( designation, scanner.fieldStart(), scanner.fieldEnd() ).append( ' ' );
+                    scanner.column( CON_INDEX );
+                    scanner.appendTo( designation, scanner.fieldStart(), scanner.fieldEnd() );
+                }
+            }
+
+            // add the star based on what we read to the builder, the Star itself is only created if needed
+            builder.addStar( hipparcosId, name.toString(), designation.toString(), ra, dec, magnitude, colorIndex );
         }
     }
 }
@@ -0,0 +1,127 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+
+/**
+ * Order of the stars of a catalogue by increasing magnitude (from the brightest to the faintest),
+ * with a prefix index : the stars brighter than a given magnitude are the first ones of the order, and their
+ * number is found in constant time through a table of the first rank of every bin of BIN_WIDTH magnitudes.
+ */
+final class MagnitudeIndex
+{
+    private static final double BIN_WIDTH = 0.01;
+
+    // indices of the stars, from the brightest to the faintest, and their magnitudes
+    private final int[] order;
+    private final float[] magnitudes;
+    // the stars of the bin b (magnitudes in [ minMagnitude + b * BIN_WIDTH, minMagnitude + ( b + 1 ) * BIN_WIDTH [ )
+    // have the ranks binStart[ b ] to binStart[ b + 1 ] - 1
+    private final double minMagnitude;
+    private final int[] binStart;
+
+    /**
+     * Sorts the stars by magnitude
+     * @param magnitude : magnitude of the stars
+     * @param size : number of stars
+     */
+    MagnitudeIndex( float[] magnitude, int size )
+    {
+        order = new int[ size ];
+        Arrays.setAll( order, i -> i );
+        sortByMagnitude( order, 0, size, magnitude );
+        magnitudes = new float[ size ];
+        for ( int rank = 0; rank < size; rank++ )
+        {
+            magnitudes[ rank ] = magnitude[ order[ rank ] ];
+        }
+
+        minMagnitude = size == 0 ? 0 : magnitudes[ 0 ];
+        int binCount = size == 0 ? 0 : bin( magnitudes[ size - 1 ] ) + 1;
+        binStart = new int[ binCount + 1 ];
+        for ( int rank = 0; rank < size; rank++ )
+        {
+            binStart[ bin( magnitudes[ rank ] ) + 1 ]++;
+        }
+        for ( int b = 0; b < binCount; b++ )
+        {
+            binStart[ b + 1 ] += binStart[ b ];
+        }
+    }
+
+    /**
+     * @param magnitude : a magnitude
+     * @return the number of stars whose magnitude is at most the given one,
+     *         which are the stars of ranks 0 to brighterCount( magnitude ) - 1
+     */
+    int brighterCount( double magnitude )
+    {
+        if ( order.length == 0 || magnitude < minMagnitude ) { return 0; }
+        if ( magnitude >= magnitudes[ order.length - 1 ] ) { return order.length; }
+
+        // all the stars of the previous bins are brighter, only the bin of the magnitude has to be scanned
+        int b = bin( magnitude );
+        int rank = binStart[ b ];
+        while ( rank < binStart[ b + 1 ] && magnitudes[ rank ] <= magnitude ) { rank++; }
+        return rank;
+    }
+
+    /**
+     * @param rank : rank of a star, from 0 for the brightest one
+     * @return the index of the star of the given rank
+     */
+    int star( int rank ) { return order[ rank ]; }
+
+    /**
+     * @return the bin of the given magnitude, which is at least minMagnitude
+     */
+    private int bin( double magnitude ) { return (int) ( ( magnitude - minMagnitude ) / BIN_WIDTH ); }
+
+    /**
+     * @param star : index of a star
+     * @param magnitude : magnitude of the stars, by index
+     * @return a long made of the magnitude of the star (as an int of the same order) followed by its index,
+     *         so that the order of the longs is the order of the stars by magnitude then by index
+     */
+    static long sortKey( int star, float[] magnitude )
+    {
+        return ( (long) sortableBits( magnitude[ star ] ) << 32 ) | star;
+    }
+
+    /**
+     * @param sortKey : a long returned by sortKey
+     * @return the index of the star of the key
+     */
+    static int starOfKey( long sortKey ) { return (int) sortKey; }
+
+    /**
+     * Sorts a part of an array of stars by magnitude, without boxing : the sort keys of the stars are sorted,
+     * so that stars of equal magnitude are sorted by index
+     * @param stars : indices of stars
+     * @param from : first element of the array to sort
+     * @param to : element following the last one to sort
+     * @param magnitude : magnitude of the stars, by index
+     */
+    static void sortByMagnitude( int[] stars, int from, int to, float[] magnitude )
+    {
+        long[] keys = new long[ to - from ];
+        for ( int k = from; k < to; k++ )
+        {
+            keys[ k - from ] = sortKey( stars[ k ], magnitude );
+        }
+        Arrays.sort( keys );
+
+        for ( int k = from; k < to; k++ )
+        {
+            stars[ k ] = starOfKey( keys[ k - from ] );
+        }
+    }
+
+    /**
+     * @return an int whose (signed) order is the order of the float
+     */
+    private static int sortableBits( float value )
+    {
+        int bits = Float.floatToIntBits( value );
+        return bits ^ ( ( bits >> 31 ) & Integer.MAX_VALUE );
+    }
+}
@@ -10,7 +10,7 @@ import ch.epfl.rigel.math.RightOpenInterval;
 /**
  * Represents a model of the moon
  */
-public enum MoonModel implements CelestialObjectModel<Moon>
+public enum MoonModel implements EphemerisModel<Moon>
 {
 
     MOON();
@@ -45,22 +45,20 @@ public enum MoonModel implements CelestialObjectModel<Moon>
 
 
     /**
-     * @param daysSinceJ2010 : number of days after the J2010 (possibly negative)
-     * @param eclipticToEquatorialConversion : Conversion used to get its equatorial coordinates from its ecliptic coordinates
-     * @return the moon at a certain instant
+     * @param state : the state of the solar system, which contains the position of the Sun
+     * @param values : the array receiving the ecliptic coordinates, the angular size and the phase of the moon
      */
     @Override
-    public Moon at(
-            double daysSinceJ2010,
-            EclipticToEquatorialConversion eclipticToEquatorialConversion )
+    public void values( SolarSystemState state, double[] values )
     {
+        double daysSinceJ2010 = state.daysSinceJ2010();
         double averageOrbitalLongitude = AVERAGE_LONGITUDE_CONST * daysSinceJ2010 + AVERAGE_LONGITUDE;
 
         double meanAnomaly = averageOrbitalLongitude - MEAN_ANOMALY_CONST * daysSinceJ2010 - PERIGEE_AVERAGE_LONGITUDE;
 
-        Sun sun = SunModel.SUN.at( daysSinceJ2010, eclipticToEquatorialConversion );
-        double sunLon = sun.eclipticPos().lon();
-        double sinSunMeanAnomaly = Math.sin( sun.meanAnomaly() );
+        // the position of the Sun is read from the state, the Sun itself is not needed
+        double sunLon = state.sunLongitude();
+        double sinSunMeanAnomaly = Math.sin( state.sunMeanAnomaly() );
 
         double evection = EVECTION_CONST * Math.sin( 2 * ( averageOrbitalLongitude - sunLon ) - meanAnomaly );
         double annualEquationCorrection = ANNUAL_EQUATION_CORRECTION_CONST * sinSunMeanAnomaly;
@@ -84,23 +82,31 @@ public enum MoonModel implements CelestialObjectModel<Moon>
         double cosDeltaLon = Math.cos( deltaLon );
         double sinDeltaLon = Math.sin( deltaLon );
 
-        double eclipticLongitude = lonInterval.reduce( Math.atan2(
+        values[ LON ] = Math.atan2(
                 sinDeltaLon * COS_INCLINATION_ORBIT,
                 cosDeltaLon
-        ) + correctedAscendingNodeLongitude );
-        double eclipticLatitude = Math.asin( sinDeltaLon  * SIN_INCLINATION_ORBIT );
-
-        EquatorialCoordinates equatorialPos = eclipticToEquatorialConversion.apply( EclipticCoordinates.of( eclipticLongitude, eclipticLatitude ) );
-
-
+        ) + correctedAscendingNodeLongitude;
+        values[ LAT ] = Math.asin( sinDeltaLon  * SIN_INCLINATION_ORBIT );
 
         double orbitalHalfAxisLength = ( 1 - ORBITAL_ECCENTRICITY_SQUARED )  /  ( 1 + ORBITAL_ECCENTRICITY * Math.cos( correctedAnomaly + centerEquationCorrection ) );
-        double angularSize =  ANGULAR_SIZE_CONST / orbitalHalfAxisLength;
-
+        values[ ANGULAR_SIZE ] =  ANGULAR_SIZE_CONST / orbitalHalfAxisLength;
+        values[ MAGNITUDE ] = 0;
 
-        double phase = phaseInterval.clip( ( 1 - Math.cos( trueOrbitalLongitude - sunLon ) ) / 2 );
+        values[ EXTRA ] = ( 1 - Math.cos( trueOrbitalLongitude - sunLon ) ) / 2;
+    }
 
+    /**
+     * @param values : the values of the moon at an instant
+     * @param eclipticToEquatorialConversion : Conversion used to get its equatorial coordinates from its ecliptic coordinates
+     * @return the moon having these values
+     */
+    @Override
+    public Moon of( double[] values, EclipticToEquatorialConversion eclipticToEquatorialConversion )
+    {
+        EquatorialCoordinates equatorialPos = eclipticToEquatorialConversion.apply(
+                EclipticCoordinates.of( lonInterval.reduce( values[ LON ] ), values[ LAT ] ) );
+        double phase = phaseInterval.clip( values[ EXTRA ] );
 
-        return new Moon( equatorialPos, (float)angularSize, 0, (float)phase );
+        return new Moon( equatorialPos, (float)values[ ANGULAR_SIZE ], 0, (float)phase );
     }
 }
@@ -0,0 +1,172 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Index of the stars of a catalogue by name : the lower case names are sorted, so that the names beginning
+ * with a given prefix form a range found by two binary searches.
+ * A segment tree over the sorted names gives the brightest star of any range in logarithmic time, so that the
+ * brightest stars of the range are read one after the other by splitting it around them, without scanning it :
+ * the cost only depends on the number of stars returned, not on the number of names beginning with the prefix.
+ */
+final class NameIndex
+{
+    // lower case names, sorted, and the index of the star of each name
+    private final String[] keys;
+    private final int[] stars;
+    // sort key (see MagnitudeIndex.sortKey) of the star of each name
+    private final long[] rankKeys;
+    // segment tree of the brightest names : the node n > 0 covers the nodes 2n and 2n + 1, the leaf of the
+    // name k is the node keys.length + k, and each node holds the position of the brightest name it covers
+    private final int[] brightest;
+
+    /**
+     * Sorts the names of the stars
+     * @param names : names of the stars
+     * @param magnitude : magnitude of the stars, used to rank the results
+     * @param size : number of stars
+     */
+    NameIndex( String[] names, float[] magnitude, int size )
+    {
+        Entry[] entries = new Entry[ size ];
+        for ( int i = 0; i < size; i++ )
+        {
+            entries[ i ] = new Entry( fold( names[ i ] ), i );
+        }
+        Arrays.parallelSort( entries, Comparator.comparing( ( Entry entry ) -> entry.key )
+                .thenComparingInt( entry -> entry.star ) );
+
+        keys = new String[ size ];
+        stars = new int[ size ];
+        for ( int k = 0; k < size; k++ )
+        {
+            keys[ k ] = entries[ k ].key;
+            stars[ k ] = entries[ k ].star;
+        }
+
+        rankKeys = new long[ size ];
+        brightest = new int[ 2 * size ];
+        for ( int k = 0; k < size; k++ )
+        {
+            rankKeys[ k ] = MagnitudeIndex.sortKey( stars[ k ], magnitude );
+            brightest[ size + k ] = k;
+        }
+        for ( int n = size - 1; n > 0; n-- )
+        {
+            brightest[ n ] = brighter( brightest[ 2 * n ], brightest[ 2 * n + 1 ] );
+        }
+    }
+
+    /**
+     * @return the position of the brightest of the two names
+     */
+    private int brighter( int k1, int k2 ) { return rankKeys[ k1 ] <= rankKeys[ k2 ] ? k1 : k2; }
+
+    /**
+     * @param from : position of the first name of the range
+     * @param to : position following the last name of the range, greater than from
+     * @return the position of the brightest name of the range
+     */
+    private int brightestBetween( int from, int to )
+    {
+        int best = from;
+        for ( int l = from + keys.length, r = to + keys.length; l < r; l >>>= 1, r >>>= 1 )
+        {
+            if ( ( l & 1 ) == 1 ) { best = brighter( best, brightest[ l++ ] ); }
+            if ( ( r & 1 ) == 1 ) { best = brighter( best, brightest[ --r ] ); }
+        }
+        return best;
+    }
+
+    /**
+     * @param name : a name
+     * @return the name in the case used by the index
+     */
+    static String fold( String name ) { return name.toLowerCase( Locale.ROOT ); }
+
+    /**
+     * @param prefix : the beginning of a name, in any case
+     * @param limit : maximum number of stars to return
+     * @return the indices of the (at most limit) brightest stars whose name begins with the prefix,
+     *         from the brightest to the faintest
+     */
+    int[] starsWithPrefix( String prefix, int limit )
+    {
+        String key = fold( prefix );
+
+        // first name not before the prefix
+        int from = 0, to = keys.length;
+        while ( from < to )
+        {
+            int middle = ( from + to ) >>> 1;
+            if ( keys[ middle ].compareTo( key ) < 0 ) { from = middle + 1; }
+            else { to = middle; }
+        }
+        int start = from;
+
+        // the names beginning with the prefix follow it, up to the first one which does not
+        to = keys.length;
+        while ( from < to )
+        {
+            int middle = ( from + to ) >>> 1;
+            if ( keys[ middle ].startsWith( key ) ) { from = middle + 1; }
+            else { to = middle; }
+        }
+        int end = from;
+
+        int[] matches = new int[ Math.max( 0, Math.min( limit, end - start ) ) ];
+        if ( matches.length == 0 ) { return matches; }
+
+        // ranges of names whose brightest star is not returned yet, by magnitude of that star : the brightest
+        // star of the brightest range is the next one, and the rest of its range is split around it
+        PriorityQueue<Range> ranges = new PriorityQueue<>( Comparator.comparingLong( range -> rankKeys[ range.best ] ) );
+        ranges.add( new Range( start, end, brightestBetween( start, end ) ) );
+        for ( int r = 0; r < matches.length; r++ )
+        {
+            Range range = ranges.poll();
+            matches[ r ] = stars[ range.best ];
+            if ( range.from < range.best )
+            {
+                ranges.add( new Range( range.from, range.best, brightestBetween( range.from, range.best ) ) );
+            }
+            if ( range.best + 1 < range.to )
+            {
+                ranges.add( new Range( range.best + 1, range.to, brightestBetween( range.best + 1, range.to ) ) );
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * A range of sorted names and the position of its brightest name
+     */
+    private static final class Range
+    {
+        private final int from, to, best;
+
+        private Range( int from, int to, int best )
+        {
+            this.from = from;
+            this.to = to;
+            this.best = best;
+        }
+    }
+
+    /**
+     * A name and its star, only used to sort the names
+     */
+    private static final class Entry
+    {
+        private final String key;
+        private final int star;
+
+        private Entry( String key, int star )
+        {
+            this.key = key;
+            this.star = star;
+        }
+    }
+}
@@ -5,22 +5,47 @@ import ch.epfl.rigel.coordinates.*;
 
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 /*
     represents a set of celestial objects projected in the plane by a stereographic projection.
     In other words, it represents a kind of photograph of the sky at a given time and place of observation.
  */
 public class ObservedSky
 {
+    // the planets computed for an instant are kept for the instants less than this apart
+    private static final long PLANETS_TOLERANCE_MILLIS = 1000;
+
+    // the stages of the computation : the objects of the solar system at the moment, then their horizontal
+    // coordinates at the position, which a sky updated with the same inputs shares with this one
+    private final SolarSystemStage solarSystem;
+    private final HorizontalStage horizontal;
     // list of planet without earth
     private final List<Planet> planetsWithoutEarth;
     // hashmap linking a celestial object with his Cartesian Coordinates
-    private final HashMap<CelestialObject, CartesianCoordinates> planetCartesianCoordinates;
+    private final Map<CelestialObject, CartesianCoordinates> planetCartesianCoordinates;
     private final Set<CelestialObject> celestialObjects;
+    // indices in the catalogue of the stars of the sky, in increasing order, in the first starCount elements
+    // (the arrays of the stars can be longer when they are reused from a previous sky)
+    private final int starCount;
+    private final int[] starIndices;
+    // projected positions of the stars of the sky : x at 2 * i, y at 2 * i + 1 for the star starIndices[ i ]
+    private final double[] starPositions;
+    // grid of the projected positions of the stars, built the first time the stars are searched
+    // (building it twice when two threads search at the same time is harmless)
+    private volatile PlaneIndex starPlaneIndex;
+    // projected positions of the stars of the asterisms, in the order of the asterism rows of the catalogue
+    private final double[] asterismPositions;
     private final EquatorialToHorizontalConversion conversionToHorizontal;
     private final StereographicProjection projection;
     private final Sun sun;
     private final Moon moon;
     private final StarCatalogue catalogue;
+    private final double visibleRadius;
+    private final double limitingMagnitude;
+    // pool projecting the stars in parallel
+    private final ForkJoinPool pool;
 
     /**
      * calculates the projected position in the plane of all celestial objects: the Sun,
@@ -36,47 +61,268 @@ public class ObservedSky
             StereographicProjection projection,
             StarCatalogue catalogue)
     {
-        this.catalogue = catalogue;
-        this.projection = projection;
-        planetsWithoutEarth = new ArrayList<>();
-        planetCartesianCoordinates = new HashMap<>();
+        this( moment, position, projection, catalogue, Math.PI, Double.POSITIVE_INFINITY );
+    }
 
-        // list of planetModel without earth
-        List<PlanetModel> planetsModelWithoutEarth = new ArrayList<>( PlanetModel.ALL );
-        planetsModelWithoutEarth.remove(PlanetModel.EARTH);
-        celestialObjects = new HashSet<>();
+    /**
+     * calculates the projected position in the plane of the Sun, the Moon, the planets of the solar system
+     * - except the Earth -, the stars of the asterisms, and the stars of the catalogue which are in the visible
+     * part of the sky (and maybe a few more) : the cap of the given radius around the center of the projection,
+     * and which are bright enough to be seen
+     * @param moment: the time of observation (given by a "zoned" date/time pair),
+     * @param position: the observation position (given by its geographical coordinates)
+     * @param projection : the stereographic projection to be used
+     * @param catalogue : the catalogue containing the stars and asterisms
+     * @param visibleRadius : angular radius of the visible part of the sky, the whole sky if it is at least PI
+     * @param limitingMagnitude : magnitude of the faintest stars of the sky
+     */
+    public ObservedSky(
+            ZonedDateTime moment,
+            GeographicCoordinates position,
+            StereographicProjection projection,
+            StarCatalogue catalogue,
+            double visibleRadius,
+            double limitingMagnitude )
+    {
+        this( moment, position, projection, catalogue, visibleRadius, limitingMagnitude, Ephemeris.ANALYTIC );
+    }
 
-        EclipticToEquatorialConversion conversionToEquatorial = new EclipticToEquatorialConversion( moment );
-        this.conversionToHorizontal = new EquatorialToHorizontalConversion( moment, position );
-        double daysUntil = Epoch.J2010.daysUntil( moment );
+    /**
+     * calculates the projected position in the plane of the Sun, the Moon, the planets of the solar system
+     * - except the Earth -, the stars of the asterisms, and the stars of the catalogue which are in the visible
+     * part of the sky (and maybe a few more) : the cap of the given radius around the center of the projection,
+     * and which are bright enough to be seen
+     * @param moment: the time of observation (given by a "zoned" date/time pair),
+     * @param position: the observation position (given by its geographical coordinates)
+     * @param projection : the stereographic projection to be used
+     * @param catalogue : the catalogue containing the stars and asterisms
+     * @param visibleRadius : angular radius of the visible part of the sky, the whole sky if it is at least PI
+     * @param limitingMagnitude : magnitude of the faintest stars of the sky
+     * @param ephemeris : the ephemeris giving the Sun, the Moon and the planets
+     */
+    public ObservedSky(
+            ZonedDateTime moment,
+            GeographicCoordinates position,
+            StereographicProjection projection,
+            StarCatalogue catalogue,
+            double visibleRadius,
+            double limitingMagnitude,
+            Ephemeris ephemeris )
+    {
+        this( moment, position, projection, catalogue, visibleRadius, limitingMagnitude, ephemeris,
+              ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * calculates the projected position in the plane of the Sun, the Moon, the planets of the solar system
+     * - except the Earth -, the stars of the asterisms, and the stars of the catalogue which are in the visible
+     * part of the sky (and maybe a few more) : the cap of the given radius around the center of the projection,
+     * and which are bright enough to be seen. Many stars are projected in parallel by chunks, in their order.
+     * @param moment: the time of observation (given by a "zoned" date/time pair),
+     * @param position: the observation position (given by its geographical coordinates)
+     * @param projection : the stereographic projection to be used
+     * @param catalogue : the catalogue containing the stars and asterisms
+     * @param visibleRadius : angular radius of the visible part of the sky, the whole sky if it is at least PI
+     * @param limitingMagnitude : magnitude of the faintest stars of the sky
+     * @param ephemeris : the ephemeris giving the Sun, the Moon and the planets
+     * @param pool : the pool projecting the stars, by this sky and the skies updated from it
+     */
+    public ObservedSky(
+            ZonedDateTime moment,
+            GeographicCoordinates position,
+            StereographicProjection projection,
+            StarCatalogue catalogue,
+            double visibleRadius,
+            double limitingMagnitude,
+            Ephemeris ephemeris,
+            ForkJoinPool pool )
+    {
+        // the moment is converted once, the rest of the computations use its number of milliseconds
+        this( new HorizontalStage( new SolarSystemStage( Epoch.epochMillis( moment ), ephemeris, null ), position ),
+              projection, catalogue, visibleRadius, limitingMagnitude, pool, null, new Buffers() );
+    }
 
-        sun = SunModel.SUN.at( daysUntil, conversionToEquatorial );
-        moon = MoonModel.MOON.at( daysUntil, conversionToEquatorial );
-        celestialObjects.add( sun );
-        celestialObjects.add( moon );
+    /**
+     * projects the objects of the sky from their horizontal stage
+     * @param horizontal : the horizontal stage of the sky
+     * @param projection : the stereographic projection to be used
+     * @param catalogue : the catalogue containing the stars and asterisms
+     * @param visibleRadius : angular radius of the visible part of the sky, the whole sky if it is at least PI
+     * @param limitingMagnitude : magnitude of the faintest stars of the sky
+     * @param pool : the pool projecting the stars
+     * @param previous : a sky whose projections of the objects of the solar system and of the asterisms are reused
+     *                 if it has the same horizontal stage and projection, or null
+     * @param buffers : the buffers receiving the projections of the stars and of the asterisms
+     */
+    private ObservedSky(
+            HorizontalStage horizontal,
+            StereographicProjection projection,
+            StarCatalogue catalogue,
+            double visibleRadius,
+            double limitingMagnitude,
+            ForkJoinPool pool,
+            ObservedSky previous,
+            Buffers buffers )
+    {
+        this.solarSystem = horizontal.solarSystem;
+        this.horizontal = horizontal;
+        this.catalogue = catalogue;
+        this.visibleRadius = visibleRadius;
+        this.limitingMagnitude = limitingMagnitude;
+        this.projection = projection;
+        this.pool = pool;
+        this.conversionToHorizontal = horizontal.conversion;
+        this.sun = solarSystem.sun;
+        this.moon = solarSystem.moon;
+        this.planetsWithoutEarth = solarSystem.planets;
+        this.celestialObjects = solarSystem.objects;
 
-        for ( PlanetModel planet : planetsModelWithoutEarth )
+        // the arrays of the buffers are never shared with another sky, whose buffers can be reused before this one
+        int asterismCount = catalogue.asterismCount();
+        asterismPositions = buffers.asterismPositions(
+                2 * ( asterismCount == 0 ? 0 : catalogue.asterismEnd( asterismCount - 1 ) ) );
+        boolean sameProjection = previous != null && previous.horizontal == horizontal && previous.projection == projection;
+        if ( sameProjection )
         {
-            Planet solarPlanet = planet.at( daysUntil, conversionToEquatorial );
-            celestialObjects.add( solarPlanet );
-            planetsWithoutEarth.add( solarPlanet );
+            planetCartesianCoordinates = previous.planetCartesianCoordinates;
+            System.arraycopy( previous.asterismPositions, 0, asterismPositions, 0, asterismPositions.length );
         }
+        else
+        {
+            planetCartesianCoordinates = new HashMap<>();
+            for ( CelestialObject object : celestialObjects )
+            {
+                planetCartesianCoordinates.put( object, projection.apply( horizontal.positions.get( object ) ) );
+            }
+
+            // the asterisms are always projected, their lines can cross the visible part of the sky
+            catalogue.projectAsterismStars( conversionToHorizontal, projection, asterismPositions, pool );
+        }
+
+        // only the bright enough stars of the cells of the catalogue intersecting the visible cap are projected
+        EquatorialCoordinates center = conversionToHorizontal.inverseApply( projection.center() );
+        starIndices = catalogue.starsWithin( center.ra(), center.dec(), visibleRadius, limitingMagnitude,
+                                             buffers::starIndices );
+        starCount = buffers.starCount;
+        starPositions = buffers.starPositions;
+        catalogue.projectStars( starIndices, starCount, conversionToHorizontal, projection, starPositions, pool );
+    }
+
+    /**
+     * calculates the sky for new inputs, recomputing only the stages depending on the inputs which changed :
+     * the objects of the solar system if the moment changed (the planets are kept if it changed by less than
+     * a second), their horizontal coordinates if the position changed too, and the projections.
+     * The catalogue, the ephemeris and the pool of this sky are used.
+     * @param moment: the time of observation (given by a "zoned" date/time pair),
+     * @param position: the observation position (given by its geographical coordinates)
+     * @param projection : the stereographic projection to be used
+     * @param visibleRadius : angular radius of the visible part of the sky, the whole sky if it is at least PI
+     * @param limitingMagnitude : magnitude of the faintest stars of the sky
+     * @return the sky for the new inputs, which is this sky if none of them changed
+     */
+    public ObservedSky updated(
+            ZonedDateTime moment,
+            GeographicCoordinates position,
+            StereographicProjection projection,
+            double visibleRadius,
+            double limitingMagnitude )
+    {
+        return updated( moment, position, projection, visibleRadius, limitingMagnitude, new Buffers() );
+    }
 
-        celestialObjects.addAll( catalogue.stars() );
+    /**
+     * Same as updated( moment, position, projection, visibleRadius, limitingMagnitude ), the projections of the
+     * stars and of the asterisms of the new sky being computed in the given buffers instead of new arrays
+     * @param buffers : the buffers of the new sky, which must not be the ones of a sky still in use
+     *                (this one included) : their previous content is overwritten
+     * @return the sky for the new inputs, which is this sky if none of them changed (the buffers are then unused)
+     */
+    public ObservedSky updated(
+            ZonedDateTime moment,
+            GeographicCoordinates position,
+            StereographicProjection projection,
+            double visibleRadius,
+            double limitingMagnitude,
+            Buffers buffers )
+    {
+        long epochMillis = Epoch.epochMillis( moment );
+        SolarSystemStage newSolarSystem = epochMillis == solarSystem.epochMillis
+                ? solarSystem
+                : new SolarSystemStage( epochMillis, solarSystem.ephemeris, solarSystem );
+        HorizontalStage newHorizontal = newSolarSystem == solarSystem && horizontal.isAt( position )
+                ? horizontal
+                : new HorizontalStage( newSolarSystem, position );
 
-        for ( CelestialObject planet : celestialObjects )
+        if ( newHorizontal == horizontal && projection == this.projection
+                && visibleRadius == this.visibleRadius && limitingMagnitude == this.limitingMagnitude )
         {
-            planetCartesianCoordinates.put(
-                    planet,
-                    projection.apply( conversionToHorizontal.apply( planet.equatorialPos() ) ) );
+            return this;
         }
+        return new ObservedSky( newHorizontal, projection, catalogue, visibleRadius, limitingMagnitude, pool, this,
+                                buffers );
+    }
+
+    /**
+     * @param other : a sky, or null
+     * @return true if the stars and the asterisms of the other sky are the ones of this sky at the same projected
+     * positions, which is known without comparing them when they were computed for the same inputs
+     */
+    public boolean hasSameStarsAs( ObservedSky other )
+    {
+        return other != null && other.catalogue == catalogue && hasSameSolarSystemAs( other )
+                && other.visibleRadius == visibleRadius && other.limitingMagnitude == limitingMagnitude;
     }
 
+    /**
+     * @param other : a sky, or null
+     * @return true if the objects of the solar system of the other sky are the ones of this sky at the same projected
+     * positions, which is known without comparing them when they were computed for the same inputs
+     */
+    public boolean hasSameSolarSystemAs( ObservedSky other )
+    {
+        return other != null && other.horizontal == horizontal && other.projection == projection;
+    }
+
+    /**
+     *
+     * @return the catalogue containing the stars and asterisms of the sky
+     */
+    public StarCatalogue catalogue() { return catalogue; }
+
+    /**
+     *
+     * @return the magnitude of the faintest stars of the sky
+     */
+    public double limitingMagnitude() { return limitingMagnitude; }
+
+    /**
+     *
+     * @return the number of stars of the sky, i.e. the visible ones
+     */
+    public int starCount() { return starCount; }
+
     /**
      *
-     * @return list of the stars in the catalogue
+     * @param i : number of a star of the sky, between 0 and starCount()
+     * @return the index in the catalogue of the star
      */
-    public List<Star> stars() { return List.copyOf( this.catalogue.stars() ); }
+    public int starIndex( int i ) { return starIndices[ i ]; }
+
+    /**
+     *
+     * @return list of the stars of the sky (created when they are accessed)
+     */
+    public List<Star> stars()
+    {
+        return new AbstractList<>()
+        {
+            @Override
+            public Star get( int i ) { return catalogue.star( starIndices[ i ] ); }
+
+            @Override
+            public int size() { return starCount; }
+        };
+    }
 
     /**
      *
@@ -84,12 +330,10 @@ public class ObservedSky
      */
     public List<CartesianCoordinates> starPosition()
     {
-        List<Star> allStars = stars();
         List<CartesianCoordinates> cartesianCoordinates = new ArrayList<>();
-        for ( Star star: allStars )
+        for ( int i = 0; i < 2 * starCount; i += 2 )
         {
-            // convert coordinates to horizontal and then apply the projection
-            cartesianCoordinates.add( this.projection.apply( conversionToHorizontal.apply( star.equatorialPos() ) ) );
+            cartesianCoordinates.add( CartesianCoordinates.of( starPositions[ i ], starPositions[ i + 1 ] ) );
         }
         return cartesianCoordinates;
     }
@@ -99,17 +343,32 @@ public class ObservedSky
      * @return return a double array of all stars carstesian coordinates
      * contains at position 0 the x-coordinate of the first star, at position 1 the y-coordinate of the same star.
      */
-    public double[] starsArrayPosition()
+    public double[] starsArrayPosition() { return Arrays.copyOf( starPositions, 2 * starCount ); }
+
+    /**
+     * Copies the cartesian coordinates of the stars in an array, in the same order as starsArrayPosition()
+     * @param destination : an array of at least 2 * starCount() elements
+     */
+    public void copyStarPositions( double[] destination )
     {
-        List<CartesianCoordinates> allStars = starPosition();
-        double[] starsCoordinates = new double[ allStars.size() * 2 ];
-        int i = 0;
-        for ( CartesianCoordinates starCartesianCoordinates : allStars )
-        {
-            starsCoordinates[ i++ ] = starCartesianCoordinates.x();
-            starsCoordinates[ i++ ]  = starCartesianCoordinates.y();
-        }
-        return starsCoordinates;
+        System.arraycopy( starPositions, 0, destination, 0, 2 * starCount );
+    }
+
+    /**
+     *
+     * @return a double array of the cartesian coordinates of the stars of the asterisms, in the order of the
+     * asterism rows of the catalogue : the position p (see StarCatalogue.asterismStar) is at 2 * p and 2 * p + 1
+     */
+    public double[] asterismsArrayPosition() { return asterismPositions.clone(); }
+
+    /**
+     * Copies the cartesian coordinates of the stars of the asterisms in an array, in the same order as
+     * asterismsArrayPosition()
+     * @param destination : an array at least as long as asterismsArrayPosition()
+     */
+    public void copyAsterismPositions( double[] destination )
+    {
+        System.arraycopy( asterismPositions, 0, destination, 0, asterismPositions.length );
     }
 
     public Sun sun() { return sun; }
@@ -161,40 +420,260 @@ public class ObservedSky
      */
     public Optional<CelestialObject> objectClosestTo( CartesianCoordinates coordinates, double maximalDistance )
     {
-        double distance = maximalDistance;
-        double distanceBetween;
+        double x = coordinates.x();
+        double y = coordinates.y();
+        // the distances are compared by their squares
+        double distanceSquared = maximalDistance * maximalDistance;
         CelestialObject currentObject = null;
-        for ( CelestialObject object : celestialObjects )
+        for ( Map.Entry<CelestialObject, CartesianCoordinates> entry : planetCartesianCoordinates.entrySet() )
         {
-            distanceBetween = distanceBetween( planetCartesianCoordinates.get( object ), coordinates );
-            if ( distance > distanceBetween )
+            double dx = entry.getValue().x() - x;
+            double dy = entry.getValue().y() - y;
+            if ( distanceSquared > dx * dx + dy * dy )
             {
-                distance = distanceBetween;
-                currentObject = object;
+                distanceSquared = dx * dx + dy * dy;
+                currentObject = entry.getKey();
             }
         }
 
-        if ( distance == maximalDistance )
+        // only the stars of the cells around the point are compared, and only the closest one is created
+        int closestStar = starPlaneIndex().closest( x, y, Math.sqrt( distanceSquared ) );
+        if ( closestStar >= 0 ) { currentObject = catalogue.star( starIndices[ closestStar ] ); }
+
+        return Optional.ofNullable( currentObject );
+    }
+
+    /**
+     * Gives to the action, in no particular order, the numbers (between 0 and starCount()) of the stars whose
+     * projected positions are inside a rectangle of the plane, bounds included, without creating any object
+     * @param minX : smallest x coordinate of the rectangle
+     * @param minY : smallest y coordinate of the rectangle
+     * @param maxX : largest x coordinate of the rectangle
+     * @param maxY : largest y coordinate of the rectangle
+     * @param action : the action receiving the numbers of the stars
+     */
+    public void forEachStarWithin( double minX, double minY, double maxX, double maxY, IntConsumer action )
+    {
+        starPlaneIndex().forEachWithin( minX, minY, maxX, maxY, action );
+    }
+
+    /**
+     * Gives to the action, in no particular order, the numbers (between 0 and starCount()) of the stars whose
+     * projected positions are at a distance at most radius of a point of the plane, without creating any object
+     * @param center : the point of the plane
+     * @param radius : the distance from the point
+     * @param action : the action receiving the numbers of the stars
+     */
+    public void forEachStarWithin( CartesianCoordinates center, double radius, IntConsumer action )
+    {
+        starPlaneIndex().forEachWithin( center.x(), center.y(), radius, action );
+    }
+
+    /**
+     * @param minX : smallest x coordinate of the rectangle
+     * @param minY : smallest y coordinate of the rectangle
+     * @param maxX : largest x coordinate of the rectangle
+     * @param maxY : largest y coordinate of the rectangle
+     * @return the numbers (between 0 and starCount()), in increasing order, of the stars whose projected positions
+     * are inside the rectangle of the plane, bounds included
+     */
+    public int[] starsWithin( double minX, double minY, double maxX, double maxY )
+    {
+        IntStream.Builder stars = IntStream.builder();
+        forEachStarWithin( minX, minY, maxX, maxY, stars );
+        return stars.build().sorted().toArray();
+    }
+
+    /**
+     * @param center : the point of the plane
+     * @param radius : the distance from the point
+     * @return the numbers (between 0 and starCount()), in increasing order, of the stars whose projected positions
+     * are at a distance at most radius of the point
+     */
+    public int[] starsWithin( CartesianCoordinates center, double radius )
+    {
+        IntStream.Builder stars = IntStream.builder();
+        forEachStarWithin( center, radius, stars );
+        return stars.build().sorted().toArray();
+    }
+
+    /**
+     * @param minX : smallest x coordinate of the rectangle
+     * @param minY : smallest y coordinate of the rectangle
+     * @param maxX : largest x coordinate of the rectangle
+     * @param maxY : largest y coordinate of the rectangle
+     * @return the Sun, the Moon and the planets whose projected positions are inside the rectangle of the plane,
+     * bounds included
+     */
+    public List<CelestialObject> solarSystemObjectsWithin( double minX, double minY, double maxX, double maxY )
+    {
+        List<CelestialObject> objects = new ArrayList<>();
+        for ( Map.Entry<CelestialObject, CartesianCoordinates> entry : planetCartesianCoordinates.entrySet() )
+        {
+            double x = entry.getValue().x();
+            double y = entry.getValue().y();
+            if ( minX <= x && x <= maxX && minY <= y && y <= maxY ) { objects.add( entry.getKey() ); }
+        }
+        return objects;
+    }
+
+    /**
+     * @param center : the point of the plane
+     * @param radius : the distance from the point
+     * @return the Sun, the Moon and the planets whose projected positions are at a distance at most radius
+     * of the point
+     */
+    public List<CelestialObject> solarSystemObjectsWithin( CartesianCoordinates center, double radius )
+    {
+        List<CelestialObject> objects = new ArrayList<>();
+        for ( Map.Entry<CelestialObject, CartesianCoordinates> entry : planetCartesianCoordinates.entrySet() )
         {
-            return Optional.empty();
+            double dx = entry.getValue().x() - center.x();
+            double dy = entry.getValue().y() - center.y();
+            if ( dx * dx + dy * dy <= radius * radius ) { objects.add( entry.getKey() ); }
         }
-        else
+        return objects;
+    }
+
+    /**
+     * @return the grid of the projected positions of the stars, which is built if it is not yet
+     */
+    private PlaneIndex starPlaneIndex()
+    {
+        PlaneIndex index = starPlaneIndex;
+        if ( index == null )
         {
-            assert currentObject != null;
-            return Optional.of( currentObject );
+            index = new PlaneIndex( starPositions, starCount );
+            starPlaneIndex = index;
         }
+        return index;
     }
 
     /**
-     *
-     * @param point1 : point1 in Cartesian Coordinates
-     * @param point2 : point2 in Cartesian Coordinates
-     * @return the distance between the 2 points
+     * Arrays in which the projections of the stars and of the asterisms of a sky are computed, which can be given
+     * to the next skies of an animation instead of allocating new ones for each of them. The buffers belong to the
+     * last sky computed in them : they can only be given for a new sky once this one is not used anymore.
+     * The arrays grow with the number of stars, a bit more than needed so that they are rarely reallocated.
+     */
+    public static final class Buffers
+    {
+        private int starCount;
+        private int[] starIndices = new int[ 0 ];
+        private double[] starPositions = new double[ 0 ];
+        private double[] asterismPositions = new double[ 0 ];
+
+        /**
+         * @param count : the number of stars of the sky
+         * @return the array of the indices of the stars, of at least the given length
+         */
+        private int[] starIndices( int count )
+        {
+            starCount = count;
+            if ( starIndices.length < count )
+            {
+                starIndices = new int[ count + count / 8 ];
+                starPositions = new double[ 2 * starIndices.length ];
+            }
+            return starIndices;
+        }
+
+        /**
+         * @param length : the number of coordinates of the stars of the asterisms
+         * @return the array of the positions of the stars of the asterisms, of the given length
+         */
+        private double[] asterismPositions( int length )
+        {
+            if ( asterismPositions.length != length ) { asterismPositions = new double[ length ]; }
+            return asterismPositions;
+        }
+    }
+
+    /**
+     * The objects of the solar system at an instant, the first stage of the sky
      */
-    private double distanceBetween( CartesianCoordinates point1, CartesianCoordinates point2 )
+    private static final class SolarSystemStage
     {
-        return Math.sqrt( Math.pow( point2.x() - point1.x(), 2 ) + Math.pow( point2.y() - point1.y(), 2 ) );
+        private final long epochMillis;
+        private final Ephemeris ephemeris;
+        private final Sun sun;
+        private final Moon moon;
+        private final List<Planet> planets;
+        // the instant of the planets, which can be an instant close to epochMillis
+        private final long planetsMillis;
+        private final Set<CelestialObject> objects;
+
+        /**
+         * @param epochMillis : the instant, in milliseconds since 1970-01-01T00:00Z
+         * @param ephemeris : the ephemeris giving the Sun, the Moon and the planets
+         * @param previous : a stage whose planets are kept if they are close enough to the instant, or null
+         */
+        private SolarSystemStage( long epochMillis, Ephemeris ephemeris, SolarSystemStage previous )
+        {
+            this.epochMillis = epochMillis;
+            this.ephemeris = ephemeris;
+
+            // the positions of the Earth and of the Sun are computed once for all the objects of the solar system
+            SolarSystemState state = new SolarSystemState(
+                    Epoch.J2010.daysUntil( epochMillis ), new EclipticToEquatorialConversion( epochMillis ) );
+            sun = ephemeris.sun( state );
+            moon = ephemeris.moon( state );
+
+            if ( previous != null && Math.abs( epochMillis - previous.planetsMillis ) < PLANETS_TOLERANCE_MILLIS )
+            {
+                planets = previous.planets;
+                planetsMillis = previous.planetsMillis;
+            }
+            else
+            {
+                List<Planet> planets = new ArrayList<>();
+                for ( PlanetModel planet : PlanetModel.ALL )
+                {
+                    if ( planet != PlanetModel.EARTH ) { planets.add( ephemeris.planet( planet, state ) ); }
+                }
+                this.planets = Collections.unmodifiableList( planets );
+                planetsMillis = epochMillis;
+            }
+
+            objects = new HashSet<>( planets );
+            objects.add( sun );
+            objects.add( moon );
+        }
     }
 
+    /**
+     * The horizontal coordinates of the objects of the solar system for a position, the second stage of the sky
+     */
+    private static final class HorizontalStage
+    {
+        private final SolarSystemStage solarSystem;
+        private final double lon, lat;
+        private final EquatorialToHorizontalConversion conversion;
+        private final Map<CelestialObject, HorizontalCoordinates> positions;
+
+        /**
+         * @param solarSystem : the objects of the solar system
+         * @param position : the observation position
+         */
+        private HorizontalStage( SolarSystemStage solarSystem, GeographicCoordinates position )
+        {
+            this.solarSystem = solarSystem;
+            this.lon = position.lon();
+            this.lat = position.lat();
+            this.conversion = new EquatorialToHorizontalConversion( solarSystem.epochMillis, position );
+            this.positions = new HashMap<>();
+            for ( CelestialObject object : solarSystem.objects )
+            {
+                positions.put( object, conversion.apply( object.equatorialPos() ) );
+            }
+        }
 
+        /**
+         * @param position : an observation position
+         * @return true if the stage is for this position
+         */
+        private boolean isAt( GeographicCoordinates position )
+        {
+            return position.lon() == lon && position.lat() == lat;
+        }
+    }
 }
@@ -0,0 +1,215 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Spatial index of points of the plane of a projection, a uniform grid of cells.
+ * The grid covers the bounding box of the points, limited to a square around the center of the projection :
+ * the points outside of it (the projections of the points close to the opposite of the center, which can be
+ * very far away) are put in the cells of the border. The points are stored sorted by cell, with their coordinates,
+ * so that the points of a cell are contiguous in memory.
+ * A query for the closest point visits the cells by rings of increasing distance around the cell of the queried
+ * point, and stops as soon as a ring can not contain a closer point. A range query only visits the cells
+ * intersecting the bounding box of the range.
+ */
+final class PlaneIndex
+{
+    // the grid is chosen to have about this number of points per cell
+    private static final int POINTS_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_SIDE = 1 << 11;
+    // half side of the square around the center of the projection covered by the grid at most
+    private static final double MAX_EXTENT = 4;
+
+    private final int cellsPerSide;
+    private final double minX, minY;
+    private final double cellWidth, cellHeight;
+    // points of the cell c : points[ cellStart[ c ] ] to points[ cellStart[ c + 1 ] - 1 ], in increasing order
+    private final int[] cellStart;
+    private final int[] points;
+    // coordinates of the points, in the order of the points array
+    private final double[] xs, ys;
+
+    /**
+     * Builds the index of the given points, the points having a coordinate which is not finite are left out
+     * @param positions : the coordinates of the points : x of the point i at 2 * i and y at 2 * i + 1
+     * @param count : number of points
+     */
+    PlaneIndex( double[] positions, int count )
+    {
+        int size = 0;
+        double minX = MAX_EXTENT, minY = MAX_EXTENT, maxX = -MAX_EXTENT, maxY = -MAX_EXTENT;
+        for ( int i = 0; i < count; i++ )
+        {
+            double x = positions[ 2 * i ], y = positions[ 2 * i + 1 ];
+            if ( Double.isFinite( x ) && Double.isFinite( y ) )
+            {
+                size++;
+                minX = Math.min( minX, x );
+                minY = Math.min( minY, y );
+                maxX = Math.max( maxX, x );
+                maxY = Math.max( maxY, y );
+            }
+        }
+        minX = Math.max( minX, -MAX_EXTENT );
+        minY = Math.max( minY, -MAX_EXTENT );
+        maxX = Math.min( maxX, MAX_EXTENT );
+        maxY = Math.min( maxY, MAX_EXTENT );
+        // the grid covers the whole square if the points do not span a rectangle
+        if ( !( minX < maxX ) ) { minX = -MAX_EXTENT; maxX = MAX_EXTENT; }
+        if ( !( minY < maxY ) ) { minY = -MAX_EXTENT; maxY = MAX_EXTENT; }
+
+        this.cellsPerSide = (int) Math.max( 1, Math.min( MAX_CELLS_PER_SIDE,
+                                                         Math.ceil( Math.sqrt( (double) size / POINTS_PER_CELL ) ) ) );
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = ( maxX - minX ) / cellsPerSide;
+        this.cellHeight = ( maxY - minY ) / cellsPerSide;
+
+        // counting sort of the points by cell, stable so that the points of a cell stay in increasing order
+        int cellCount = cellsPerSide * cellsPerSide;
+        int[] cellOf = new int[ count ];
+        cellStart = new int[ cellCount + 1 ];
+        for ( int i = 0; i < count; i++ )
+        {
+            double x = positions[ 2 * i ], y = positions[ 2 * i + 1 ];
+            cellOf[ i ] = Double.isFinite( x ) && Double.isFinite( y ) ? row( y ) * cellsPerSide + column( x ) : -1;
+            if ( cellOf[ i ] >= 0 ) { cellStart[ cellOf[ i ] + 1 ]++; }
+        }
+        for ( int c = 0; c < cellCount; c++ )
+        {
+            cellStart[ c + 1 ] += cellStart[ c ];
+        }
+
+        int[] next = Arrays.copyOf( cellStart, cellCount );
+        points = new int[ size ];
+        xs = new double[ size ];
+        ys = new double[ size ];
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( cellOf[ i ] < 0 ) { continue; }
+            int k = next[ cellOf[ i ] ]++;
+            points[ k ] = i;
+            xs[ k ] = positions[ 2 * i ];
+            ys[ k ] = positions[ 2 * i + 1 ];
+        }
+    }
+
+    /**
+     * @param x : x coordinate of the point
+     * @param y : y coordinate of the point
+     * @param maxDistance : the distance under which the points are searched
+     * @return the point closest to the given point, the one of lowest index among the equally close ones,
+     *         if it is at a distance less than maxDistance, -1 otherwise
+     */
+    int closest( double x, double y, double maxDistance )
+    {
+        if ( Double.isNaN( x ) || Double.isNaN( y ) ) { return -1; }
+
+        int closest = -1;
+        double closestSquared = maxDistance * maxDistance;
+        int cx = column( x ), cy = row( y );
+        int ringCount = Math.max( Math.max( cx, cellsPerSide - 1 - cx ), Math.max( cy, cellsPerSide - 1 - cy ) );
+        double cellSize = Math.min( cellWidth, cellHeight );
+
+        for ( int r = 0; r <= ringCount; r++ )
+        {
+            // the points of the ring r are at least at ( r - 1 ) cells from the point along one of the axes,
+            // even the ones of the border which are outside the grid
+            double ringDistance = ( r - 1 ) * cellSize;
+            if ( r > 0 && ringDistance * ringDistance > closestSquared ) { break; }
+
+            for ( int j = Math.max( 0, cy - r ); j <= Math.min( cellsPerSide - 1, cy + r ); j++ )
+            {
+                // all the cells of the first and last rows of the ring, only the first and last ones of the others
+                int step = j == cy - r || j == cy + r ? 1 : 2 * r;
+                for ( int i = cx - r; i <= cx + r; i += step )
+                {
+                    if ( i < 0 || i >= cellsPerSide ) { continue; }
+                    int c = j * cellsPerSide + i;
+                    for ( int k = cellStart[ c ]; k < cellStart[ c + 1 ]; k++ )
+                    {
+                        double dx = xs[ k ] - x, dy = ys[ k ] - y;
+                        double squared = dx * dx + dy * dy;
+                        if ( squared < closestSquared || ( squared == closestSquared && points[ k ] < closest ) )
+                        {
+                            closestSquared = squared;
+                            closest = points[ k ];
+                        }
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Gives to the action, in no particular order, the points inside a rectangle, bounds included
+     * @param minX : smallest x coordinate of the rectangle
+     * @param minY : smallest y coordinate of the rectangle
+     * @param maxX : largest x coordinate of the rectangle
+     * @param maxY : largest y coordinate of the rectangle
+     * @param action : the action receiving the points
+     */
+    void forEachWithin( double minX, double minY, double maxX, double maxY, IntConsumer action )
+    {
+        if ( !( minX <= maxX && minY <= maxY ) ) { return; }
+
+        for ( int j = row( minY ); j <= row( maxY ); j++ )
+        {
+            for ( int c = j * cellsPerSide + column( minX ); c <= j * cellsPerSide + column( maxX ); c++ )
+            {
+                for ( int k = cellStart[ c ]; k < cellStart[ c + 1 ]; k++ )
+                {
+                    if ( minX <= xs[ k ] && xs[ k ] <= maxX && minY <= ys[ k ] && ys[ k ] <= maxY )
+                    {
+                        action.accept( points[ k ] );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives to the action, in no particular order, the points at a distance at most radius of a point
+     * @param x : x coordinate of the point
+     * @param y : y coordinate of the point
+     * @param radius : the distance from the point
+     * @param action : the action receiving the points
+     */
+    void forEachWithin( double x, double y, double radius, IntConsumer action )
+    {
+        if ( Double.isNaN( x ) || Double.isNaN( y ) || !( radius >= 0 ) ) { return; }
+
+        double radiusSquared = radius * radius;
+        for ( int j = row( y - radius ); j <= row( y + radius ); j++ )
+        {
+            for ( int c = j * cellsPerSide + column( x - radius ); c <= j * cellsPerSide + column( x + radius ); c++ )
+            {
+                for ( int k = cellStart[ c ]; k < cellStart[ c + 1 ]; k++ )
+                {
+                    double dx = xs[ k ] - x, dy = ys[ k ] - y;
+                    if ( dx * dx + dy * dy <= radiusSquared ) { action.accept( points[ k ] ); }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param x : x coordinate of a point
+     * @return the column of the cell of the point, the one of the border if it is outside the grid
+     */
+    private int column( double x )
+    {
+        return Math.max( 0, Math.min( cellsPerSide - 1, (int) ( ( x - minX ) / cellWidth ) ) );
+    }
+
+    /**
+     * @param y : y coordinate of a point
+     * @return the row of the cell of the point, the one of the border if it is outside the grid
+     */
+    private int row( double y )
+    {
+        return Math.max( 0, Math.min( cellsPerSide - 1, (int) ( ( y - minY ) / cellHeight ) ) );
+    }
+}
@@ -12,7 +12,7 @@ import java.util.List;
 /**
  * Represents a Model for the eight planets of the Solar System
  */
-public enum PlanetModel implements CelestialObjectModel<Planet> {
+public enum PlanetModel implements EphemerisModel<Planet> {
 
 
     MERCURY("Mercure", 0.24085, 75.5671, 77.612, 0.205627,
@@ -76,22 +76,15 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
     }
 
     /**
-     * @param daysSinceJ2010 : number of days after the J2010 (possibly negative)
-     * @param eclipticToEquatorialConversion : Conversion used to get its equatorial coordinates from its ecliptic coordinates
-     * @return returns the object modeled by the model for the (possibly negative) number of days after
-     *         the given J2010 epoch, using the given conversion to obtain its equatorial coordinates from its ecliptic coordinates
+     * @param state : the state of the solar system, which contains the position of the Earth
+     * @param values : the array receiving the ecliptic coordinates, the angular size and the magnitude of the planet
      */
     @Override
-    public Planet at(
-            double daysSinceJ2010,
-            EclipticToEquatorialConversion eclipticToEquatorialConversion )
+    public void values( SolarSystemState state, double[] values )
     {
-        double meanAnomaly = ANGULAR_SPEED * ( daysSinceJ2010 / revolutionPeriod ) + deltaLon;
-        double trueAnomaly = meanAnomaly + 2 * orbitEccentricity * Math.sin( meanAnomaly );
-
-
-        double radius = ( halfOrbitMajorAxis * ( 1 - eccentricitySquared ) )  /  ( 1 + orbitEccentricity * Math.cos( trueAnomaly ) );
-        double longitude = trueAnomaly + lonPerigee;
+        double trueAnomaly = trueAnomaly( state.daysSinceJ2010() );
+        double radius = radius( trueAnomaly );
+        double longitude = longitude( trueAnomaly );
 
         double deltaLonSin = Math.sin( longitude - lonAscendingNode );
         double deltaLonCos = Math.cos( longitude - lonAscendingNode );
@@ -106,10 +99,9 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
                 Math.atan2( deltaLonSin * inclinationCos, deltaLonCos ) + lonAscendingNode
         );
 
-        /* Earth constants -> 0: earthRad, 1: earthLon */
-        double[] earthConstants = getEarthConstants( daysSinceJ2010 );
-        double earthRadius = earthConstants[ 0 ];
-        double earthLongitude = earthConstants[ 1 ];
+        /* Earth constants, computed once by the state */
+        double earthRadius = state.earthRadius();
+        double earthLongitude = state.earthLongitude();
 
         /* EQUATORIAL POS */
         double eclipticLon;
@@ -119,15 +111,14 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
         } else {
             eclipticLon = getOuterLon( projectedRadius, projectedLongitude, earthRadius, earthLongitude );
         }
-        eclipticLon = lonInterval.reduce( eclipticLon );
 
         double eclipticLat = Math.atan(
                 ( projectedRadius * Math.tan( psi ) * Math.sin( eclipticLon - projectedLongitude ) ) /
                 ( earthRadius * Math.sin( projectedLongitude - earthLongitude ) )
         );
 
-        EclipticCoordinates eclipticPos = EclipticCoordinates.of( eclipticLon, eclipticLat );
-        EquatorialCoordinates equatorialPos = eclipticToEquatorialConversion.apply( eclipticPos );
+        values[ LON ] = eclipticLon;
+        values[ LAT ] = eclipticLat;
         /* END OF EQUATORIAL POS */
 
 
@@ -135,17 +126,30 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
         double distance = Math.sqrt( Math.abs(
                 Math.pow( earthRadius, 2 ) + Math.pow( radius, 2 ) - 2 * earthRadius * radius * Math.cos( longitude - earthLongitude ) * cosPsi
         ) );
-        double planetAngularSize = angularSize / distance;
+        values[ ANGULAR_SIZE ] = angularSize / distance;
         /* END OF ANGULAR SIZE */
 
 
         /* MAGNITUDE */
         double phase = ( 1 + Math.cos( eclipticLon - longitude ) ) / 2;
-        double planetMagnitude =  magnitude + 5 * Math.log10( radius * distance / Math.sqrt( phase ) );
+        values[ MAGNITUDE ] =  magnitude + 5 * Math.log10( radius * distance / Math.sqrt( phase ) );
         /* END OF MAGNITUDE */
 
+        values[ EXTRA ] = 0;
+    }
+
+    /**
+     * @param values : the values of the planet at an instant
+     * @param eclipticToEquatorialConversion : Conversion used to get its equatorial coordinates from its ecliptic coordinates
+     * @return returns the planet having these values
+     */
+    @Override
+    public Planet of( double[] values, EclipticToEquatorialConversion eclipticToEquatorialConversion )
+    {
+        EclipticCoordinates eclipticPos = EclipticCoordinates.of( lonInterval.reduce( values[ LON ] ), values[ LAT ] );
+        EquatorialCoordinates equatorialPos = eclipticToEquatorialConversion.apply( eclipticPos );
 
-        return new Planet( name, equatorialPos, (float) planetAngularSize, (float) planetMagnitude );
+        return new Planet( name, equatorialPos, (float) values[ ANGULAR_SIZE ], (float) values[ MAGNITUDE ] );
     }
 
 
@@ -179,14 +183,26 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
 
     /**
      * @param daysSinceJ2010: the day since J2010
-     * @return the Earth Constants, the radius and the longitude
+     * @return the true anomaly of the planet
      */
-    private double[] getEarthConstants( double daysSinceJ2010 )
+    double trueAnomaly( double daysSinceJ2010 )
     {
-        double earthMeanAnomaly = ANGULAR_SPEED * daysSinceJ2010 / EARTH.revolutionPeriod + EARTH.deltaLon;
-        double earthTrueAnomaly = earthMeanAnomaly + 2 * EARTH.orbitEccentricity * Math.sin( earthMeanAnomaly );
-        double earthRad = ( EARTH.halfOrbitMajorAxis * ( 1 - EARTH.eccentricitySquared ) )  /  ( 1 + EARTH.orbitEccentricity * Math.cos( earthTrueAnomaly ) );
-        double earthLon = earthTrueAnomaly + EARTH.lonPerigee;
-        return new double[] { earthRad, earthLon };
+        double meanAnomaly = ANGULAR_SPEED * ( daysSinceJ2010 / revolutionPeriod ) + deltaLon;
+        return meanAnomaly + 2 * orbitEccentricity * Math.sin( meanAnomaly );
     }
+
+    /**
+     * @param trueAnomaly : the true anomaly of the planet
+     * @return the distance between the planet and the Sun, in AU
+     */
+    double radius( double trueAnomaly )
+    {
+        return ( halfOrbitMajorAxis * ( 1 - eccentricitySquared ) )  /  ( 1 + orbitEccentricity * Math.cos( trueAnomaly ) );
+    }
+
+    /**
+     * @param trueAnomaly : the true anomaly of the planet
+     * @return the heliocentric ecliptic longitude of the planet (not reduced)
+     */
+    double longitude( double trueAnomaly ) { return trueAnomaly + lonPerigee; }
 }
@@ -18,6 +18,9 @@ public final class SiderealTime
     // a polynomial to calculate the delta between a ZonedDateTime and J2000
     private final static Polynomial CENTURY_POLY = Polynomial.of( 0.000025862, 2400.051336, 6.697374558 );
     private final static Polynomial HOURS_POLY = Polynomial.of( 1.002737909, 0 );
+    // number of milliseconds in a day and in an hour
+    private final static long MILLIS_PER_DAY = 86400000;
+    private final static double MILLIS_PER_HOUR = 3600000;
 
     private SiderealTime() {}
 
@@ -42,6 +45,22 @@ public final class SiderealTime
         return Angle.normalizePositive( Angle.ofHr( greenwichSiderealTime ) );
     }
 
+    /**
+     * @param epochMillis : the instant, in milliseconds since 1970-01-01T00:00Z
+     * @return : the Greenwich Sidereal time in radians at the instant
+     */
+    public static double greenwich( long epochMillis )
+    {
+        long dayStart = Math.floorDiv( epochMillis, MILLIS_PER_DAY ) * MILLIS_PER_DAY;
+
+        double T = Epoch.J2000.julianCenturiesUntil( dayStart );
+        double t = ( epochMillis - dayStart ) / MILLIS_PER_HOUR;
+
+        double greenwichSiderealTime = HOURS_INTERVAL.reduce( CENTURY_POLY.at( T ) ) + HOURS_POLY.at( t );
+
+        return Angle.normalizePositive( Angle.ofHr( greenwichSiderealTime ) );
+    }
+
     /**
      * @param when: the actual time date and hour
      * @param where: a position
@@ -51,4 +70,14 @@ public final class SiderealTime
     {
         return Angle.normalizePositive( greenwich( when ) + where.lon() );
     }
+
+    /**
+     * @param epochMillis : the instant, in milliseconds since 1970-01-01T00:00Z
+     * @param where: a position
+     * @return: the local Sidereal time in radians at the instant and for the position (where)
+     */
+    public static double local( long epochMillis, GeographicCoordinates where )
+    {
+        return Angle.normalizePositive( greenwich( epochMillis ) + where.lon() );
+    }
 }
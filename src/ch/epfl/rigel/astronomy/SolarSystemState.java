@@ -0,0 +1,74 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+
+/**
+ * Represents the state of the solar system shared by all its objects at a given instant : the heliocentric
+ * position of the Earth, needed by all the planets, and the geocentric position of the Sun, needed by the Moon.
+ * It is computed once per instant, so that all the models use the same values without computing them again.
+ */
+public final class SolarSystemState
+{
+    private final double daysSinceJ2010;
+    private final EclipticToEquatorialConversion eclipticToEquatorialConversion;
+
+    // heliocentric position of the Earth : distance (in AU) and ecliptic longitude
+    private final double earthRadius, earthLongitude;
+    // mean and true anomaly of the Sun, and its geocentric ecliptic longitude (not reduced)
+    private final double sunMeanAnomaly, sunTrueAnomaly, sunLongitude;
+
+    /**
+     * Computes the state of the solar system at a given instant
+     * @param daysSinceJ2010 : number of days after the J2010 (possibly negative)
+     * @param eclipticToEquatorialConversion : Conversion used to get the equatorial coordinates of the objects
+     *                                       from their ecliptic coordinates
+     */
+    public SolarSystemState( double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion )
+    {
+        this.daysSinceJ2010 = daysSinceJ2010;
+        this.eclipticToEquatorialConversion = eclipticToEquatorialConversion;
+
+        double earthTrueAnomaly = PlanetModel.EARTH.trueAnomaly( daysSinceJ2010 );
+        this.earthRadius = PlanetModel.EARTH.radius( earthTrueAnomaly );
+        this.earthLongitude = PlanetModel.EARTH.longitude( earthTrueAnomaly );
+
+        this.sunMeanAnomaly = SunModel.meanAnomaly( daysSinceJ2010 );
+        this.sunTrueAnomaly = SunModel.trueAnomaly( sunMeanAnomaly );
+        this.sunLongitude = SunModel.longitude( sunTrueAnomaly );
+    }
+
+    /**
+     * @return the number of days after the J2010 of the instant
+     */
+    public double daysSinceJ2010() { return daysSinceJ2010; }
+
+    /**
+     * @return the conversion from ecliptic to equatorial coordinates at the instant
+     */
+    public EclipticToEquatorialConversion eclipticToEquatorialConversion() { return eclipticToEquatorialConversion; }
+
+    /**
+     * @return the distance between the Sun and the Earth, in AU
+     */
+    public double earthRadius() { return earthRadius; }
+
+    /**
+     * @return the heliocentric ecliptic longitude of the Earth, in radians (not reduced)
+     */
+    public double earthLongitude() { return earthLongitude; }
+
+    /**
+     * @return the mean anomaly of the Sun, in radians
+     */
+    public double sunMeanAnomaly() { return sunMeanAnomaly; }
+
+    /**
+     * @return the true anomaly of the Sun, in radians
+     */
+    public double sunTrueAnomaly() { return sunTrueAnomaly; }
+
+    /**
+     * @return the geocentric ecliptic longitude of the Sun, in radians (not reduced)
+     */
+    public double sunLongitude() { return sunLongitude; }
+}
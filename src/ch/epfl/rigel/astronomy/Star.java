@@ -30,14 +30,31 @@ public final class Star extends CelestialObject
     public Star( int hipparcosId, String name, EquatorialCoordinates equatorialPos, float magnitude, float colorIndex )
     {
         super( name, equatorialPos, 0, magnitude );
-        Preconditions.checkArgument( hipparcosId >= 0 );
-        Preconditions.checkInInterval( COLOR_INTERVAL, colorIndex );
+        checkAttributes( hipparcosId, colorIndex );
 
         this.colorIndex = colorIndex;
         this.hipparcosId = hipparcosId;
+        this.colorTemperature = colorTemperature( colorIndex );
+    }
+
+    /**
+     * Checks the attributes proper to a star (also used by the catalogue, which stores stars by columns)
+     * Throw IllegalArgumentException if the Hipparcos number is negative, or if the color index is not in the range [-0.5, 5.5].
+     */
+    static void checkAttributes( int hipparcosId, float colorIndex )
+    {
+        Preconditions.checkArgument( hipparcosId >= 0 );
+        Preconditions.checkInInterval( COLOR_INTERVAL, colorIndex );
+    }
 
+    /**
+     * @param colorIndex : star color index
+     * @return the color Temperature in Kelvin of a star of the given color index
+     */
+    static int colorTemperature( float colorIndex )
+    {
         double d = 0.92 * colorIndex;
-        colorTemperature = (int) Math.floor( 4600 * (  ( 1 / ( d + 1.7 ) ) + ( 1 / ( d + 0.62 ) )  ) );
+        return (int) Math.floor( 4600 * (  ( 1 / ( d + 1.7 ) ) + ( 1 / ( d + 0.62 ) )  ) );
     }
 
     /**
@@ -45,6 +62,11 @@ public final class Star extends CelestialObject
      */
     public int hipparcosId() { return  hipparcosId; }
 
+    /**
+     * @return the color index of the star
+     */
+    public double colorIndex() { return colorIndex; }
+
     /**
      * @return the color Temperature of the Star in Kelvin using the color Index
      */
@@ -1,22 +1,69 @@
 package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.StereographicProjection;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
 
 /**
  * Represents a Catalogue of stars and asterisms
+ * The stars are stored by columns : one primitive array per attribute, indexed by the position of the star
+ * in the catalogue. Star objects are only created when asked for, and then kept so that the same index
+ * always gives the same Star.
  */
 public final class StarCatalogue
 {
-    // HashMap containing Asterisms and there star index
-    private final Map<Asterism, List<Integer>> indices;
-    // List of stars in the catalogue
-    private final List<Star> stars;
-    // Set of asterisms in the catalogue
+    // smallest number of stars worth being projected by their own task
+    private static final int MIN_CHUNK_STARS = 1 << 14;
+    // number of chunks per thread of the pool, so that the threads stay busy until the end
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // number of stars in the catalogue
+    private final int size;
+    // columns of the stars, indexed by the position of the star in the catalogue
+    private final double[] ra, dec;
+    // unit vectors of the stars in the equatorial frame, computed once since the stars do not move in it
+    private final double[] unitX, unitY, unitZ;
+    private final float[] magnitude, colorIndex;
+    private final int[] hipparcosId, colorTemperature;
+    private final String[] names;
+    // other designation of the stars (e.g. the Bayer designation of a star with a proper name), empty if none
+    private final String[] designations;
+    // stars already created, null where a star has never been asked for
+    private final AtomicReferenceArray<Star> stars;
+    // index of the stars by Hipparcos id
+    private final HipparcosIndex hipparcosIndex;
+    // index of the stars by position on the celestial sphere
+    private final CelestialSphereIndex sphereIndex;
+    // order of the stars by magnitude
+    private final MagnitudeIndex magnitudeIndex;
+    // index of the stars by name
+    private final NameIndex nameIndex;
+    // Asterisms of the catalogue, in order, and the number of each one
+    private final Asterism[] asterismList;
+    private final Map<Asterism, Integer> asterismNumbers;
+    // (immutable) Set of asterisms in the catalogue
     private final Set<Asterism> asterisms;
+    // star indices of the asterisms (compressed sparse rows) : the indices of the stars of the asterism number a
+    // are asterismStars[ asterismOffsets[ a ] ] to asterismStars[ asterismOffsets[ a + 1 ] - 1 ]
+    private final int[] asterismOffsets;
+    private final int[] asterismStars;
 
     /**
      *
@@ -27,38 +74,257 @@ public final class StarCatalogue
      */
     public StarCatalogue( List<Star> stars, List<Asterism> asterisms )
     {
-        Map<Star, Integer> starIndiceMap = new HashMap<>();
-        for ( Star s: stars )
+        this( new Builder().addStars( stars ), asterisms );
+    }
+
+    /**
+     * Build a catalogue from the columns of the builder
+     * @param builder : the builder containing the stars
+     * @param asterisms : list of asterism in the catalogue
+     */
+    private StarCatalogue( Builder builder, List<Asterism> asterisms )
+    {
+        this.size = builder.size;
+        this.ra = Arrays.copyOf( builder.ra, size );
+        this.dec = Arrays.copyOf( builder.dec, size );
+        this.unitX = new double[ size ];
+        this.unitY = new double[ size ];
+        this.unitZ = new double[ size ];
+        for ( int i = 0; i < size; i++ )
         {
-            starIndiceMap.put( s, starIndiceMap.size() );
+            double cosDec = Math.cos( dec[ i ] );
+            unitX[ i ] = cosDec * Math.cos( ra[ i ] );
+            unitY[ i ] = cosDec * Math.sin( ra[ i ] );
+            unitZ[ i ] = Math.sin( dec[ i ] );
         }
+        this.magnitude = Arrays.copyOf( builder.magnitude, size );
+        this.colorIndex = Arrays.copyOf( builder.colorIndex, size );
+        this.hipparcosId = Arrays.copyOf( builder.hipparcosId, size );
+        this.colorTemperature = Arrays.copyOf( builder.colorTemperature, size );
+        this.names = Arrays.copyOf( builder.names, size );
+        this.designations = Arrays.copyOf( builder.designations, size );
+        this.stars = new AtomicReferenceArray<>( Arrays.copyOf( builder.stars, size ) );
+        this.hipparcosIndex = builder.hipparcosIndex.copy();
+        this.sphereIndex = new CelestialSphereIndex( ra, dec, magnitude, size );
+        this.magnitudeIndex = new MagnitudeIndex( magnitude, size );
+        this.nameIndex = new NameIndex( names, magnitude, size );
 
-        this.stars = List.copyOf( stars );
-        this.asterisms = Set.copyOf( asterisms );
-        this.indices = new HashMap<>();
-
+        // an asterism given several times is only stored once
+        this.asterismNumbers = new HashMap<>();
+        List<Asterism> distinctAsterisms = new ArrayList<>();
+        int asterismStarCount = 0;
         for ( Asterism asterism : asterisms )
         {
-            List<Integer> tempList = new ArrayList<>();
-            List<Star> asterismStars = asterism.stars();
-            for ( Star asterismStar : asterismStars )
+            if ( asterismNumbers.putIfAbsent( asterism, distinctAsterisms.size() ) == null )
+            {
+                distinctAsterisms.add( asterism );
+                asterismStarCount += asterism.size();
+            }
+        }
+        this.asterismList = distinctAsterisms.toArray( new Asterism[ 0 ] );
+        this.asterisms = Set.copyOf( distinctAsterisms );
+
+        this.asterismOffsets = new int[ asterismList.length + 1 ];
+        this.asterismStars = new int[ asterismStarCount ];
+        int position = 0;
+        for ( int a = 0; a < asterismList.length; a++ )
+        {
+            asterismOffsets[ a ] = position;
+            for ( Star asterismStar : asterismList[ a ].stars() )
             {
-                tempList.add( starIndiceMap.get( asterismStar ) );
+                asterismStars[ position++ ] = indexOf( asterismStar );
             }
-            indices.put( asterism, tempList );
         }
+        asterismOffsets[ asterismList.length ] = position;
+    }
+
+    /**
+     * @param star : a star of the catalogue
+     * @return the index of the given star in the catalogue,
+     *         or throw IllegalArgumentException if the star is not part of the catalogue
+     */
+    private int indexOf( Star star )
+    {
+        int index = hipparcosIndex.get( star.hipparcosId() );
+        if ( index != HipparcosIndex.ABSENT && stars.get( index ) == star ) { return index; }
+
+        // several stars can share the same Hipparcos id (e.g. 0 when it is unknown)
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( stars.get( i ) == star ) { return i; }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * @return an immutable view of the stars of the catalogue, whose stars are created when they are accessed
+     */
+    public List<Star> stars()
+    {
+        return new AbstractList<>()
+        {
+            @Override
+            public Star get( int index ) { return star( index ); }
+
+            @Override
+            public int size() { return size; }
+        };
+    }
+
+    /**
+     * @return the number of stars in the catalogue
+     */
+    public int size() { return size; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the star at the given index, created if it has never been asked for
+     */
+    public Star star( int index )
+    {
+        Objects.checkIndex( index, size );
+        Star star = stars.get( index );
+        if ( star == null )
+        {
+            Star created = new Star( hipparcosId[ index ], names[ index ],
+                    EquatorialCoordinates.of( ra[ index ], dec[ index ] ), magnitude[ index ], colorIndex[ index ] );
+            // another thread may have created the star in the meantime, keep the first one
+            star = stars.compareAndExchange( index, null, created );
+            if ( star == null ) { star = created; }
+        }
+        return star;
+    }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the right ascension of the star in radians
+     */
+    public double ra( int index ) { return ra[ index ]; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the declination of the star in radians
+     */
+    public double dec( int index ) { return dec[ index ]; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the magnitude of the star
+     */
+    public double magnitude( int index ) { return magnitude[ index ]; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the color index of the star
+     */
+    public double colorIndex( int index ) { return colorIndex[ index ]; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the hipparcos id of the star
+     */
+    public int hipparcosId( int index ) { return hipparcosId[ index ]; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the color temperature of the star in Kelvin
+     */
+    public int colorTemperature( int index ) { return colorTemperature[ index ]; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return the name of the star
+     */
+    public String name( int index ) { return names[ index ]; }
+
+    /**
+     * @param index : index of a star in the catalogue
+     * @return another designation of the star than its name (e.g. its Bayer designation), or an empty string
+     */
+    public String designation( int index ) { return designations[ index ]; }
+
+    /**
+     * @param hipparcosId : a Hipparcos id
+     * @return the index of the (last added) star of the catalogue with the given Hipparcos id, or -1 if there is none
+     */
+    public int indexOfHipparcosId( int hipparcosId ) { return hipparcosIndex.get( hipparcosId ); }
+
+    /**
+     * Finds the stars in (or close to) a cap of the celestial sphere, using a spatial index of the stars
+     * @param ra : right ascension of the center of the cap
+     * @param dec : declination of the center of the cap
+     * @param radius : angular radius of the cap, the whole sky if it is at least PI
+     * @return the indices, in increasing order, of at least all the stars of the cap
+     */
+    public int[] starsWithin( double ra, double dec, double radius ) { return sphereIndex.starsWithin( ra, dec, radius ); }
+
+    /**
+     * Finds the stars brighter than a limiting magnitude in (or close to) a cap of the celestial sphere
+     * @param ra : right ascension of the center of the cap
+     * @param dec : declination of the center of the cap
+     * @param radius : angular radius of the cap, the whole sky if it is at least PI
+     * @param limitingMagnitude : the magnitude of the faintest stars to keep
+     * @return the indices, in increasing order, of at least all the stars of the cap whose magnitude
+     *         is at most the limiting magnitude, and of no fainter star
+     */
+    public int[] starsWithin( double ra, double dec, double radius, double limitingMagnitude )
+    {
+        return starsWithin( ra, dec, radius, limitingMagnitude, int[]::new );
+    }
+
+    /**
+     * Same as starsWithin( ra, dec, radius, limitingMagnitude ), in an array given for the number of stars found,
+     * so that the array of a previous search can be reused
+     * @param destination : gives an array of at least the given length, called once
+     * @return the array given by destination, the indices being in its first elements (the number asked for)
+     */
+    public int[] starsWithin( double ra, double dec, double radius, double limitingMagnitude,
+                              IntFunction<int[]> destination )
+    {
+        if ( radius < Math.PI ) { return sphereIndex.starsWithin( ra, dec, radius, limitingMagnitude, destination ); }
+
+        // the whole sky : the brightest stars
+        int count = brighterCount( limitingMagnitude );
+        int[] selected = destination.apply( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            selected[ i ] = magnitudeIndex.star( i );
+        }
+        Arrays.sort( selected, 0, count );
+        return selected;
     }
 
     /**
-     * @return the list of stars of the catalogue
+     * @param magnitude : a magnitude
+     * @return the number of stars of the catalogue whose magnitude is at most the given one, in constant time
      */
-    public List<Star> stars() { return List.copyOf( stars ); }
+    public int brighterCount( double magnitude ) { return magnitudeIndex.brighterCount( magnitude ); }
+
+    /**
+     * Finds the stars whose name begins with a prefix, whatever the case, using a sorted index of the names
+     * @param prefix : the beginning of the name of the stars
+     * @param limit : maximum number of stars to return
+     * @return the indices of the (at most limit) brightest stars whose name begins with the prefix,
+     *         from the brightest to the faintest
+     */
+    public int[] starsWithNamePrefix( String prefix, int limit ) { return nameIndex.starsWithPrefix( prefix, limit ); }
+
+    /**
+     * @param rank : rank of a star by magnitude, from 0 for the brightest one to size() - 1 for the faintest one,
+     *               the stars of equal magnitude being ranked by index
+     * @return the index of the star of the given rank
+     */
+    public int starByMagnitude( int rank )
+    {
+        Objects.checkIndex( rank, size );
+        return magnitudeIndex.star( rank );
+    }
 
     /**
      *
      * @return the set of asterisms of the catalogue
      */
-    public Set<Asterism> asterisms() { return Set.copyOf( asterisms ); }
+    public Set<Asterism> asterisms() { return asterisms; }
 
     /**
      * @param asterism : an asterism
@@ -67,8 +333,165 @@ public final class StarCatalogue
      */
     public List<Integer> asterismIndices( Asterism asterism )
     {
-        Preconditions.checkArgument( asterisms.contains( asterism ) );
-        return List.copyOf( indices.get( asterism ) ) ;
+        Integer number = asterismNumbers.get( asterism );
+        Preconditions.checkArgument( number != null );
+
+        List<Integer> indices = new ArrayList<>();
+        for ( int p = asterismStart( number ); p < asterismEnd( number ); p++ )
+        {
+            indices.add( asterismStar( p ) );
+        }
+        return List.copyOf( indices );
+    }
+
+    /**
+     * The asterisms can also be iterated without creating any object, e.g. :
+     *  for ( int a = 0; a < catalogue.asterismCount(); a++ )
+     *      for ( int p = catalogue.asterismStart( a ); p < catalogue.asterismEnd( a ); p++ )
+     *          draw( catalogue.asterismStar( p ) );
+     * @return the number of asterisms in the catalogue
+     */
+    public int asterismCount() { return asterismList.length; }
+
+    /**
+     * @param number : number of an asterism, between 0 (included) and asterismCount() (excluded)
+     * @return the asterism with the given number
+     */
+    public Asterism asterism( int number ) { return asterismList[ number ]; }
+
+    /**
+     * @param number : number of an asterism
+     * @return the position of the first star of the asterism, to be given to asterismStar
+     */
+    public int asterismStart( int number ) { return asterismOffsets[ number ]; }
+
+    /**
+     * @param number : number of an asterism
+     * @return the position following the last star of the asterism
+     */
+    public int asterismEnd( int number ) { return asterismOffsets[ number + 1 ]; }
+
+    /**
+     * @param position : position of a star of an asterism, between asterismStart and asterismEnd of the asterism
+     * @return the index in the catalogue of the star at the given position
+     */
+    public int asterismStar( int position ) { return asterismStars[ position ]; }
+
+    /**
+     * Projects stars straight from their unit vectors, without creating any object nor computing any trigonometric
+     * function
+     * @param indices : indices of the stars to project
+     * @param count : number of stars to project, the first ones of indices
+     * @param conversion : the conversion from equatorial to horizontal coordinates
+     * @param projection : the projection of the horizontal coordinates
+     * @param positions : the array where the positions are written : x of the star indices[ k ] at 2 * k
+     *                  and y at 2 * k + 1
+     */
+    public void projectStars( int[] indices, int count, EquatorialToHorizontalConversion conversion,
+                              StereographicProjection projection, double[] positions )
+    {
+        projection.applyToEquatorialVectors( conversion, unitX, unitY, unitZ, indices, count, positions );
+    }
+
+    /**
+     * Projects the stars of all the asterisms from their unit vectors, without creating any object
+     * @param conversion : the conversion from equatorial to horizontal coordinates
+     * @param projection : the projection of the horizontal coordinates
+     * @param positions : the array where the positions are written : the star at the position p
+     *                  (see asterismStar) at 2 * p and 2 * p + 1
+     */
+    public void projectAsterismStars( EquatorialToHorizontalConversion conversion,
+                                      StereographicProjection projection, double[] positions )
+    {
+        projection.applyToEquatorialVectors( conversion, unitX, unitY, unitZ, asterismStars, asterismStars.length, positions );
+    }
+
+    /**
+     * Same as projectStars( indices, count, conversion, projection, positions ), by splitting the stars into chunks
+     * projected in parallel by the pool. Each chunk writes its own slice of positions, so the positions are the
+     * same as with a sequential projection. A few stars are projected in a single chunk, by the calling thread.
+     * @param pool : the pool used to project the chunks
+     */
+    public void projectStars( int[] indices, int count, EquatorialToHorizontalConversion conversion,
+                              StereographicProjection projection, double[] positions, ForkJoinPool pool )
+    {
+        project( indices, count, conversion, projection, positions, pool, MIN_CHUNK_STARS );
+    }
+
+    /**
+     * Same as projectAsterismStars( conversion, projection, positions ), by splitting the stars into chunks
+     * projected in parallel by the pool (see projectStars)
+     * @param pool : the pool used to project the chunks
+     */
+    public void projectAsterismStars( EquatorialToHorizontalConversion conversion,
+                                      StereographicProjection projection, double[] positions, ForkJoinPool pool )
+    {
+        project( asterismStars, asterismStars.length, conversion, projection, positions, pool, MIN_CHUNK_STARS );
+    }
+
+    /**
+     * Same as projectStars( indices, count, conversion, projection, positions, pool ), with a given minimal
+     * chunk size
+     */
+    void project( int[] indices, int count, EquatorialToHorizontalConversion conversion,
+                  StereographicProjection projection, double[] positions, ForkJoinPool pool, int minChunkStars )
+    {
+        int chunkStars = Math.max( minChunkStars, count / ( pool.getParallelism() * CHUNKS_PER_THREAD ) );
+        if ( count <= chunkStars )
+        {
+            projection.applyToEquatorialVectors( conversion, unitX, unitY, unitZ, indices, 0, count, positions );
+            return;
+        }
+
+        // the last chunk is projected by the calling thread while the pool projects the others
+        List<ForkJoinTask<?>> chunks = new ArrayList<>();
+        int start = 0;
+        while ( count - start > chunkStars )
+        {
+            int chunkStart = start;
+            int chunkEnd = start + chunkStars;
+            chunks.add( pool.submit( () -> projection.applyToEquatorialVectors(
+                    conversion, unitX, unitY, unitZ, indices, chunkStart, chunkEnd, positions ) ) );
+            start = chunkEnd;
+        }
+        projection.applyToEquatorialVectors( conversion, unitX, unitY, unitZ, indices, start, count, positions );
+
+        for ( ForkJoinTask<?> chunk : chunks )
+        {
+            chunk.join();
+        }
+    }
+
+    /**
+     * Memory-maps the file read by the stream if there is one, otherwise reads the whole stream
+     * @param inputStream : the stream to map
+     * @return a buffer containing the remaining bytes of the stream
+     * @throws IOException in case of input/output error
+     */
+    static ByteBuffer map( InputStream inputStream ) throws IOException
+    {
+        if ( inputStream instanceof FileInputStream )
+        {
+            FileChannel channel = ( (FileInputStream) inputStream ).getChannel();
+            long position = channel.position();
+            return channel.map( FileChannel.MapMode.READ_ONLY, position, channel.size() - position );
+        }
+        return ByteBuffer.wrap( inputStream.readAllBytes() );
+    }
+
+    /**
+     * Memory-maps the whole file, without reading it on the heap
+     * @param file : the file to map
+     * @return a read-only buffer containing the bytes of the file
+     * @throws IOException in case of input/output error
+     */
+    static ByteBuffer map( Path file ) throws IOException
+    {
+        // the mapping stays valid once the channel is closed
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            return channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        }
     }
 
     /**
@@ -77,12 +500,37 @@ public final class StarCatalogue
      */
     public final static class Builder
     {
-        private List<Star> stars;
+        // smallest chunk of a file worth being loaded by its own task
+        private static final int MIN_CHUNK_BYTES = 1 << 20;
+
+        // initial capacity of the columns
+        private static final int INITIAL_CAPACITY = 1024;
+
+        // columns of the stars added up to now, of capacity greater than size
+        private int size;
+        private double[] ra, dec;
+        private float[] magnitude, colorIndex;
+        private int[] hipparcosId, colorTemperature;
+        private String[] names, designations;
+        // stars added as objects or already created, null where a star has never been asked for
+        private Star[] stars;
+        // index of the stars by Hipparcos id, updated as the stars are added
+        private HipparcosIndex hipparcosIndex;
         private List<Asterism> asterisms;
 
         public Builder()
         {
-            this.stars = new ArrayList<>();
+            this.size = 0;
+            this.ra = new double[ INITIAL_CAPACITY ];
+            this.dec = new double[ INITIAL_CAPACITY ];
+            this.magnitude = new float[ INITIAL_CAPACITY ];
+            this.colorIndex = new float[ INITIAL_CAPACITY ];
+            this.hipparcosId = new int[ INITIAL_CAPACITY ];
+            this.colorTemperature = new int[ INITIAL_CAPACITY ];
+            this.names = new String[ INITIAL_CAPACITY ];
+            this.designations = new String[ INITIAL_CAPACITY ];
+            this.stars = new Star[ INITIAL_CAPACITY ];
+            this.hipparcosIndex = new HipparcosIndex();
             this.asterisms = new ArrayList<>();
         }
 
@@ -92,14 +540,167 @@ public final class StarCatalogue
          */
         public Builder addStar( Star star )
         {
-            stars.add( star );
+            EquatorialCoordinates position = star.equatorialPos();
+            add( star.hipparcosId(), star.name(), "", position.ra(), position.dec(),
+                    (float) star.magnitude(), (float) star.colorIndex(), star.colorTemperature() );
+            stars[ size - 1 ] = star;
+            return this;
+        }
+
+        /**
+         * Adds a star to the catalogue under construction without creating the Star itself,
+         * it will only be created if it is asked for
+         * @param hipparcosId : Hipparcos number of the Star
+         * @param name : star name
+         * @param ra : right ascension of the star in radians
+         * @param dec : declination of the star in radians
+         * @param magnitude : star magnitude
+         * @param colorIndex : star color index
+         * @return the builder
+         * @throws IllegalArgumentException if the arguments are not valid for a Star
+         * @throws NullPointerException if the name is null
+         */
+        public Builder addStar( int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex )
+        {
+            return addStar( hipparcosId, name, "", ra, dec, magnitude, colorIndex );
+        }
+
+        /**
+         * Adds a star having another designation than its name to the catalogue under construction
+         * without creating the Star itself, it will only be created if it is asked for
+         * @param hipparcosId : Hipparcos number of the Star
+         * @param name : star name
+         * @param designation : other designation of the star (e.g. its Bayer designation), empty if none
+         * @param ra : right ascension of the star in radians
+         * @param dec : declination of the star in radians
+         * @param magnitude : star magnitude
+         * @param colorIndex : star color index
+         * @return the builder
+         * @throws IllegalArgumentException if the arguments are not valid for a Star
+         * @throws NullPointerException if the name or the designation is null
+         */
+        public Builder addStar( int hipparcosId, String name, String designation,
+                                double ra, double dec, float magnitude, float colorIndex )
+        {
+            Objects.requireNonNull( name );
+            Objects.requireNonNull( designation );
+            Star.checkAttributes( hipparcosId, colorIndex );
+            EquatorialCoordinates.checkValid( ra, dec );
+            add( hipparcosId, name, designation, ra, dec, magnitude, colorIndex, Star.colorTemperature( colorIndex ) );
+            return this;
+        }
+
+        /**
+         * @param stars : the stars to add
+         * @return adds the given stars to the catalogue under construction, and returns the builder
+         */
+        private Builder addStars( List<Star> stars )
+        {
+            for ( Star star : stars )
+            {
+                addStar( star );
+            }
             return this;
         }
 
+        /**
+         * Appends a (valid) star, whose color temperature is already known, to the columns
+         */
+        void add( int hipparcosId, String name, String designation, double ra, double dec,
+                  float magnitude, float colorIndex, int colorTemperature )
+        {
+            ensureCapacity( size + 1 );
+            this.hipparcosId[ size ] = hipparcosId;
+            this.names[ size ] = name;
+            this.designations[ size ] = designation;
+            this.ra[ size ] = ra;
+            this.dec[ size ] = dec;
+            this.magnitude[ size ] = magnitude;
+            this.colorIndex[ size ] = colorIndex;
+            this.colorTemperature[ size ] = colorTemperature;
+            hipparcosIndex.put( hipparcosId, size );
+            size++;
+        }
+
+        /**
+         * Appends the stars and asterisms of another builder to this one
+         * @param other : the builder to append
+         */
+        private void addAll( Builder other )
+        {
+            ensureCapacity( size + other.size );
+            System.arraycopy( other.hipparcosId, 0, hipparcosId, size, other.size );
+            System.arraycopy( other.names, 0, names, size, other.size );
+            System.arraycopy( other.designations, 0, designations, size, other.size );
+            System.arraycopy( other.ra, 0, ra, size, other.size );
+            System.arraycopy( other.dec, 0, dec, size, other.size );
+            System.arraycopy( other.magnitude, 0, magnitude, size, other.size );
+            System.arraycopy( other.colorIndex, 0, colorIndex, size, other.size );
+            System.arraycopy( other.colorTemperature, 0, colorTemperature, size, other.size );
+            System.arraycopy( other.stars, 0, stars, size, other.size );
+            for ( int i = 0; i < other.size; i++ )
+            {
+                hipparcosIndex.put( other.hipparcosId[ i ], size + i );
+            }
+            size += other.size;
+            asterisms.addAll( other.asterisms );
+        }
+
+        /**
+         * Grows the columns so that they can contain at least the given number of stars
+         */
+        private void ensureCapacity( int capacity )
+        {
+            if ( capacity <= ra.length ) { return; }
+
+            int newCapacity = Math.max( capacity, 2 * ra.length );
+            ra = Arrays.copyOf( ra, newCapacity );
+            dec = Arrays.copyOf( dec, newCapacity );
+            magnitude = Arrays.copyOf( magnitude, newCapacity );
+            colorIndex = Arrays.copyOf( colorIndex, newCapacity );
+            hipparcosId = Arrays.copyOf( hipparcosId, newCapacity );
+            colorTemperature = Arrays.copyOf( colorTemperature, newCapacity );
+            names = Arrays.copyOf( names, newCapacity );
+            designations = Arrays.copyOf( designations, newCapacity );
+            stars = Arrays.copyOf( stars, newCapacity );
+        }
+
+        /**
+         * @param index : index of a star in the catalogue under construction
+         * @return the star at the given index, created if it has never been asked for
+         */
+        private Star star( int index )
+        {
+            Objects.checkIndex( index, size );
+            if ( stars[ index ] == null )
+            {
+                stars[ index ] = new Star( hipparcosId[ index ], names[ index ],
+                        EquatorialCoordinates.of( ra[ index ], dec[ index ] ), magnitude[ index ], colorIndex[ index ] );
+            }
+            return stars[ index ];
+        }
+
+        /**
+         * @param hipparcosId : a Hipparcos id
+         * @return the index of the (last added) star with the given Hipparcos id in the catalogue under construction,
+         *         or -1 if there is none
+         */
+        public int indexOfHipparcosId( int hipparcosId ) { return hipparcosIndex.get( hipparcosId ); }
+
         /**
          * @return an unmodifiable but not immutable view of the stars in the catalogue under construction
          */
-        public List<Star> stars() { return Collections.unmodifiableList( stars ); }
+        public List<Star> stars()
+        {
+            return new AbstractList<>()
+            {
+                @Override
+                public Star get( int index ) { return star( index ); }
+
+                @Override
+                public int size() { return size; }
+            };
+        }
 
         /**
          * @param asterism
@@ -129,12 +730,147 @@ public final class StarCatalogue
             return this;
         }
 
+        /**
+         * Asks the loader to add to the catalog the stars and/or asterisms it obtains from the memory-mapped file
+         * @param file : the file to load
+         * @param loader : a loader able to load the mapped content of the file
+         * @return the updated builder itself
+         * @throws IOException if the file can not be mapped or in case of input/output error
+         */
+        public Builder loadFrom( Path file, MappedLoader loader ) throws IOException
+        {
+            return loadFrom( map( file ), loader );
+        }
+
+        /**
+         * Asks the loader to add to the catalog the stars and/or asterisms it obtains from the content of a file
+         * @param data : the whole content of the file
+         * @param loader : a loader able to load the content of the file
+         * @return the updated builder itself
+         * @throws IOException in case of input/output error
+         */
+        Builder loadFrom( ByteBuffer data, MappedLoader loader ) throws IOException
+        {
+            loader.load( data, this );
+            return this;
+        }
+
+        /**
+         * Asks the loader to add to the catalog the stars and/or asterisms it obtains from the inputStream,
+         * by splitting the file into chunks of lines loaded in parallel by the pool.
+         * The chunks are added in the order of the file, so the stars get the same indices as with a sequential load.
+         * A small file is loaded in a single chunk, by the calling thread.
+         * @param inputStream : a stream that reads a file
+         * @param loader : a loader able to load any chunk of lines of the file
+         * @param pool : the pool used to load the chunks
+         * @return the updated builder itself
+         * @throws IOException if an exception is thrown from the stream or while loading a chunk
+         */
+        public Builder loadFrom( InputStream inputStream, ChunkedLoader loader, ForkJoinPool pool ) throws IOException
+        {
+            return loadFrom( inputStream, loader, pool, MIN_CHUNK_BYTES );
+        }
+
+        /**
+         * Same as loadFrom( inputStream, loader, pool ), with a given minimal chunk size
+         */
+        Builder loadFrom( InputStream inputStream, ChunkedLoader loader, ForkJoinPool pool, int minChunkBytes )
+                throws IOException
+        {
+            // the stream is left open, like with loadFrom( inputStream, loader )
+            return loadFrom( map( inputStream ), loader, pool, minChunkBytes );
+        }
+
+        /**
+         * Same as loadFrom( inputStream, loader, pool ), with the whole content of the file
+         */
+        Builder loadFrom( ByteBuffer data, ChunkedLoader loader, ForkJoinPool pool ) throws IOException
+        {
+            return loadFrom( data, loader, pool, MIN_CHUNK_BYTES );
+        }
+
+        /**
+         * Same as loadFrom( inputStream, loader, pool ), with the whole content of the file and a given minimal
+         * chunk size
+         */
+        Builder loadFrom( ByteBuffer data, ChunkedLoader loader, ForkJoinPool pool, int minChunkBytes )
+                throws IOException
+        {
+            int first = loader.firstRecord( data );
+            int end = data.limit();
+            int start = first;
+            int chunkBytes = Math.max( minChunkBytes, ( end - first ) / ( pool.getParallelism() * CHUNKS_PER_THREAD ) );
+
+            // split the records into chunks of complete lines
+            List<Callable<Builder>> chunks = new ArrayList<>();
+            while ( start < end )
+            {
+                int chunkStart = start;
+                int chunkEnd = lineEnd( data, (int) Math.min( end, (long) start + chunkBytes ), end );
+                chunks.add( () -> {
+                    Builder chunk = new Builder();
+                    loader.loadChunk( data, chunkStart, chunkEnd, chunk );
+                    return chunk;
+                } );
+                start = chunkEnd;
+            }
+
+            if ( chunks.size() == 1 )
+            {
+                loader.loadChunk( data, first, end, this );
+                return this;
+            }
+
+            // merge the chunks in the order of the file
+            for ( Future<Builder> chunk : pool.invokeAll( chunks ) )
+            {
+                addAll( join( chunk ) );
+            }
+            return this;
+        }
+
+        /**
+         * @return the index following the first end of line found from the given index, or end if there is none
+         */
+        private static int lineEnd( ByteBuffer data, int from, int end )
+        {
+            int i = from;
+            while ( i < end && data.get( i++ ) != '\n' ) { }
+            return i;
+        }
+
+        /**
+         * Waits for a chunk to be loaded
+         * @param chunk : the future result of the chunk
+         * @return the builder containing the chunk
+         * @throws IOException if one was thrown while loading the chunk
+         */
+        private static Builder join( Future<Builder> chunk ) throws IOException
+        {
+            try
+            {
+                return chunk.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( e );
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof IOException ) { throw (IOException) cause; }
+                if ( cause instanceof RuntimeException ) { throw (RuntimeException) cause; }
+                throw new IOException( cause );
+            }
+        }
+
         /**
          * @return the catalogue containing the stars and asterisms added up to now by the builder
          */
         public StarCatalogue build()
         {
-            return new StarCatalogue( stars, asterisms );
+            return new StarCatalogue( this, asterisms );
         }
     }
 
@@ -152,4 +888,44 @@ public final class StarCatalogue
          */
         void load( InputStream inputStream, Builder builder ) throws IOException;
     }
+
+    /**
+     * Represents a Loader able to load a file from its whole content, e.g. a memory-mapped file, without reading it
+     * through a stream (see Builder.loadFrom( Path, MappedLoader ))
+     */
+    public interface MappedLoader extends Loader
+    {
+        /**
+         * loads the stars and/or asterisms of the content of the file and adds them to the builder
+         * @param data : the whole content of the file, from its position to its limit
+         * @param builder : the builder used to build the catalogue
+         * @throws IOException if the content is not valid
+         */
+        void load( ByteBuffer data, Builder builder ) throws IOException;
+    }
+
+    /**
+     * Represents a Loader of files made of independent lines, which can therefore be loaded in parallel
+     * by chunks of complete lines (see Builder.loadFrom( InputStream, ChunkedLoader, ForkJoinPool ))
+     */
+    public interface ChunkedLoader extends Loader
+    {
+        /**
+         * @param data : the whole content of the file
+         * @return the index of the first line to load (e.g. after a header)
+         * @throws IOException if the content is not valid
+         */
+        int firstRecord( ByteBuffer data ) throws IOException;
+
+        /**
+         * loads the stars and/or asterisms of the lines between from and to, and adds them to the builder.
+         * This method can be called concurrently on different chunks and builders.
+         * @param data : the whole content of the file
+         * @param from : index of the first byte of the first line
+         * @param to : index following the last byte of the last line
+         * @param builder : the builder of the chunk
+         * @throws IOException in case of input/output error
+         */
+        void loadChunk( ByteBuffer data, int from, int to, Builder builder ) throws IOException;
+    }
 }
@@ -0,0 +1,404 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Builds a StarCatalogue through a cache on disk of the built catalogue.
+ * The files are added with the loaders they would be given to StarCatalogue.Builder.loadFrom, and the cache is
+ * keyed by a hash of their content and of their loaders. Files added by their path are memory-mapped : they are
+ * hashed and loaded from the mapping, without being copied on the heap : as long as they do not change, the catalogue is read
+ * back from the cache (stars, color temperatures and asterism indices) without running any loader.
+ * A stale, unreadable or corrupted cache file is ignored and replaced by the rebuilt catalogue.
+ */
+public final class StarCatalogueCache
+{
+    // cache file format
+    private static final int MAGIC = 0x52474C4B; // "RGLK"
+    private static final int VERSION = 2;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String EXTENSION = ".catalogue";
+    // smallest number of bytes of a star in a cache file : an id, two empty strings, two doubles, three floats or ints
+    private static final int STAR_MIN_BYTES = Integer.BYTES + 2 * Short.BYTES + 2 * Double.BYTES + 3 * Integer.BYTES;
+
+    private final Path directory;
+    private final List<Source> sources;
+
+    /**
+     * @param directory : the directory containing the cache files, created if needed
+     */
+    public StarCatalogueCache( Path directory )
+    {
+        this.directory = directory;
+        this.sources = new ArrayList<>();
+    }
+
+    /**
+     * @return the default cache directory, in the home directory of the user
+     */
+    public static Path defaultDirectory()
+    {
+        return Paths.get( System.getProperty( "user.home" ), ".rigel", "cache" );
+    }
+
+    /**
+     * Reads the file of the stream, to be given to the loader if the catalogue is not in the cache
+     * @param inputStream : a stream that reads a file, closed by this method
+     * @param loader : the loader of the file
+     * @return the cache itself
+     * @throws IOException if an exception is thrown from the stream
+     */
+    public StarCatalogueCache add( InputStream inputStream, StarCatalogue.Loader loader ) throws IOException
+    {
+        return addSource( inputStream, loader, null );
+    }
+
+    /**
+     * Same as add( inputStream, loader ), but the file is loaded in parallel by the pool
+     * (see StarCatalogue.Builder.loadFrom( InputStream, ChunkedLoader, ForkJoinPool ))
+     */
+    public StarCatalogueCache add( InputStream inputStream, StarCatalogue.ChunkedLoader loader, ForkJoinPool pool )
+            throws IOException
+    {
+        return addSource( inputStream, loader, pool );
+    }
+
+    /**
+     * Memory-maps the file, to be given to the loader if the catalogue is not in the cache
+     * @param file : the file to map
+     * @param loader : the loader of the mapped file
+     * @return the cache itself
+     * @throws IOException if the file can not be mapped
+     */
+    public StarCatalogueCache add( Path file, StarCatalogue.MappedLoader loader ) throws IOException
+    {
+        sources.add( new Source( StarCatalogue.map( file ), loader, null ) );
+        return this;
+    }
+
+    /**
+     * Same as add( file, loader ), but the mapped file is loaded in parallel by the pool
+     * (see StarCatalogue.Builder.loadFrom( InputStream, ChunkedLoader, ForkJoinPool ))
+     */
+    public StarCatalogueCache add( Path file, StarCatalogue.ChunkedLoader loader, ForkJoinPool pool )
+            throws IOException
+    {
+        sources.add( new Source( StarCatalogue.map( file ), loader, pool ) );
+        return this;
+    }
+
+    /**
+     * Reads the file of the stream, closes it and adds it to the sources
+     */
+    private StarCatalogueCache addSource( InputStream inputStream, StarCatalogue.Loader loader, ForkJoinPool pool )
+            throws IOException
+    {
+        try ( InputStream stream = inputStream )
+        {
+            sources.add( new Source( ByteBuffer.wrap( stream.readAllBytes() ), loader, pool ) );
+        }
+        return this;
+    }
+
+    /**
+     * Reads the catalogue of the added files from the cache, or loads it and stores it in the cache
+     * @return the catalogue containing the stars and asterisms of the added files
+     * @throws IOException if an exception is thrown while loading the files
+     */
+    public StarCatalogue build() throws IOException
+    {
+        byte[] key = key();
+        Path file = directory.resolve( toHex( key ) + EXTENSION );
+
+        if ( Files.isRegularFile( file ) )
+        {
+            try ( InputStream stream = new BufferedInputStream( Files.newInputStream( file ) ) )
+            {
+                return read( stream, key, Files.size( file ) );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                // corrupted cache, it is rebuilt below (and replaced if it can not be deleted)
+                try
+                {
+                    Files.deleteIfExists( file );
+                }
+                catch ( IOException ignored ) { }
+            }
+        }
+
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for ( Source source : sources )
+        {
+            // the mapped sources are loaded from their mapping, the others were read on the heap
+            ByteBuffer data = source.data.duplicate();
+            if ( source.pool != null )
+            {
+                builder.loadFrom( data, (StarCatalogue.ChunkedLoader) source.loader, source.pool );
+            }
+            else if ( source.loader instanceof StarCatalogue.MappedLoader )
+            {
+                builder.loadFrom( data, (StarCatalogue.MappedLoader) source.loader );
+            }
+            else
+            {
+                builder.loadFrom( new ByteArrayInputStream( data.array(), data.arrayOffset() + data.position(),
+                        data.remaining() ), source.loader );
+            }
+        }
+        StarCatalogue catalogue = builder.build();
+        store( catalogue, key, file );
+        return catalogue;
+    }
+
+    /**
+     * @return the hash of the content and the loaders of the added files, and of the cache format
+     */
+    private byte[] key()
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( DIGEST_ALGORITHM );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // every java platform has to support SHA-256
+            throw new IllegalStateException( e );
+        }
+
+        digest.update( ( MAGIC + ":" + VERSION ).getBytes( UTF_8 ) );
+        for ( Source source : sources )
+        {
+            // the length separates the loader name from the content
+            digest.update( ( source.loader.getClass().getName() + ":" + source.data.remaining() + ":" ).getBytes( UTF_8 ) );
+            digest.update( source.data.duplicate() );
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Writes the catalogue to a temporary file, moved to the cache file once complete so that the cache file
+     * is never partially written. As the cache is only an optimisation, failing to write it is not an error.
+     */
+    private void store( StarCatalogue catalogue, byte[] key, Path file )
+    {
+        Path temporary = null;
+        try
+        {
+            Files.createDirectories( directory );
+            temporary = Files.createTempFile( directory, "catalogue", ".tmp" );
+            try ( OutputStream stream = new BufferedOutputStream( Files.newOutputStream( temporary ) ) )
+            {
+                write( catalogue, key, stream );
+            }
+
+            try
+            {
+                Files.move( temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch ( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temporary, file, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        catch ( IOException e )
+        {
+            try
+            {
+                if ( temporary != null ) { Files.deleteIfExists( temporary ); }
+            }
+            catch ( IOException ignored ) { }
+        }
+    }
+
+    /**
+     * Writes the catalogue in the cache format : a header, the columns of the stars, the asterism rows,
+     * and a checksum of all of them
+     * @param catalogue : the catalogue to write
+     * @param key : the key of the catalogue
+     * @param outputStream : the stream where the catalogue is written
+     * @throws IOException in case of input/output error
+     */
+    static void write( StarCatalogue catalogue, byte[] key, OutputStream outputStream ) throws IOException
+    {
+        CheckedOutputStream checked = new CheckedOutputStream( outputStream, new CRC32() );
+        DataOutputStream out = new DataOutputStream( checked );
+
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeInt( key.length );
+        out.write( key );
+
+        int size = catalogue.size();
+        out.writeInt( size );
+        for ( int i = 0; i < size; i++ ) { out.writeInt( catalogue.hipparcosId( i ) ); }
+        for ( int i = 0; i < size; i++ ) { out.writeUTF( catalogue.name( i ) ); }
+        for ( int i = 0; i < size; i++ ) { out.writeUTF( catalogue.designation( i ) ); }
+        for ( int i = 0; i < size; i++ ) { out.writeDouble( catalogue.ra( i ) ); }
+        for ( int i = 0; i < size; i++ ) { out.writeDouble( catalogue.dec( i ) ); }
+        for ( int i = 0; i < size; i++ ) { out.writeFloat( (float) catalogue.magnitude( i ) ); }
+        for ( int i = 0; i < size; i++ ) { out.writeFloat( (float) catalogue.colorIndex( i ) ); }
+        for ( int i = 0; i < size; i++ ) { out.writeInt( catalogue.colorTemperature( i ) ); }
+
+        int asterismCount = catalogue.asterismCount();
+        int asterismStars = asterismCount == 0 ? 0 : catalogue.asterismEnd( asterismCount - 1 );
+        out.writeInt( asterismCount );
+        for ( int a = 0; a < asterismCount; a++ ) { out.writeInt( catalogue.asterismStart( a ) ); }
+        out.writeInt( asterismStars );
+        for ( int p = 0; p < asterismStars; p++ ) { out.writeInt( catalogue.asterismStar( p ) ); }
+
+        out.flush();
+        // the checksum itself is not part of the checked bytes
+        new DataOutputStream( outputStream ).writeLong( checked.getChecksum().getValue() );
+        outputStream.flush();
+    }
+
+    /**
+     * Reads a catalogue written in the cache format
+     * @param inputStream : the stream who reads the cache file
+     * @param key : the expected key of the catalogue
+     * @param length : the length of the cache file, in bytes : the counts read from the file are checked against it
+     *               before any array is allocated, so that a corrupted count can not exhaust the memory
+     * @return the catalogue
+     * @throws IOException if the file can not be read, does not have the expected key, or is corrupted
+     */
+    static StarCatalogue read( InputStream inputStream, byte[] key, long length ) throws IOException
+    {
+        CheckedInputStream checked = new CheckedInputStream( inputStream, new CRC32() );
+        DataInputStream in = new DataInputStream( checked );
+
+        if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+        {
+            throw new IOException( "Not a catalogue cache file" );
+        }
+        byte[] fileKey = new byte[ checkSize( in.readInt(), key.length ) ];
+        in.readFully( fileKey );
+        if ( !MessageDigest.isEqual( key, fileKey ) )
+        {
+            throw new IOException( "Stale catalogue cache file" );
+        }
+
+        // every star takes at least STAR_MIN_BYTES bytes of the file, and every offset or index an int
+        int size = checkSize( in.readInt(), maxCount( length, STAR_MIN_BYTES ) );
+        int[] hipparcosId = new int[ size ];
+        String[] names = new String[ size ];
+        String[] designations = new String[ size ];
+        double[] ra = new double[ size ];
+        double[] dec = new double[ size ];
+        float[] magnitude = new float[ size ];
+        float[] colorIndex = new float[ size ];
+        int[] colorTemperature = new int[ size ];
+        for ( int i = 0; i < size; i++ ) { hipparcosId[ i ] = in.readInt(); }
+        for ( int i = 0; i < size; i++ ) { names[ i ] = in.readUTF(); }
+        for ( int i = 0; i < size; i++ ) { designations[ i ] = in.readUTF(); }
+        for ( int i = 0; i < size; i++ ) { ra[ i ] = in.readDouble(); }
+        for ( int i = 0; i < size; i++ ) { dec[ i ] = in.readDouble(); }
+        for ( int i = 0; i < size; i++ ) { magnitude[ i ] = in.readFloat(); }
+        for ( int i = 0; i < size; i++ ) { colorIndex[ i ] = in.readFloat(); }
+        for ( int i = 0; i < size; i++ ) { colorTemperature[ i ] = in.readInt(); }
+
+        int asterismCount = checkSize( in.readInt(), maxCount( length, Integer.BYTES ) - 1 );
+        int[] offsets = new int[ asterismCount + 1 ];
+        for ( int a = 0; a <= asterismCount; a++ )
+        {
+            offsets[ a ] = in.readInt();
+            if ( offsets[ a ] < ( a == 0 ? 0 : offsets[ a - 1 ] ) || offsets[ a ] > maxCount( length, Integer.BYTES ) )
+            {
+                throw new IOException( "Corrupted offsets" );
+            }
+        }
+        int[] asterismStars = new int[ offsets[ asterismCount ] ];
+        for ( int p = 0; p < asterismStars.length; p++ ) { asterismStars[ p ] = checkSize( in.readInt(), size - 1 ); }
+
+        long checksum = checked.getChecksum().getValue();
+        if ( new DataInputStream( inputStream ).readLong() != checksum || inputStream.read() != -1 )
+        {
+            throw new IOException( "Corrupted catalogue cache file" );
+        }
+
+        // the file is valid : the stars are added as they were, without computing anything again
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for ( int i = 0; i < size; i++ )
+        {
+            builder.add( hipparcosId[ i ], names[ i ], designations[ i ], ra[ i ], dec[ i ],
+                    magnitude[ i ], colorIndex[ i ], colorTemperature[ i ] );
+        }
+        List<Star> stars = builder.stars();
+        for ( int a = 0; a < asterismCount; a++ )
+        {
+            List<Star> asterism = new ArrayList<>();
+            for ( int p = offsets[ a ]; p < offsets[ a + 1 ]; p++ )
+            {
+                asterism.add( stars.get( asterismStars[ p ] ) );
+            }
+            builder.addAsterism( new Asterism( asterism ) );
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the largest number of elements of the given size a file of the given length can contain
+     */
+    private static int maxCount( long length, int elementBytes )
+    {
+        return (int) Math.min( Integer.MAX_VALUE - 1, length / elementBytes );
+    }
+
+    /**
+     * @return the value if it is between 0 and max
+     * @throws IOException otherwise
+     */
+    private static int checkSize( int value, int max ) throws IOException
+    {
+        if ( value < 0 || value > max ) { throw new IOException( "Corrupted catalogue cache file" ); }
+        return value;
+    }
+
+    /**
+     * @return the bytes written in hexadecimal
+     */
+    private static String toHex( byte[] bytes )
+    {
+        StringBuilder hex = new StringBuilder();
+        for ( byte b : bytes )
+        {
+            hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return hex.toString();
+    }
+
+    /**
+     * A file to load, with its loader
+     */
+    private static final class Source
+    {
+        // content of the file, memory-mapped or read on the heap
+        private final ByteBuffer data;
+        private final StarCatalogue.Loader loader;
+        // the pool loading the file, null if it is loaded sequentially
+        private final ForkJoinPool pool;
+
+        private Source( ByteBuffer data, StarCatalogue.Loader loader, ForkJoinPool pool )
+        {
+            this.data = data;
+            this.loader = loader;
+            this.pool = pool;
+        }
+    }
+}
@@ -6,7 +6,7 @@ import ch.epfl.rigel.coordinates.EquatorialCoordinates;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.RightOpenInterval;
 
-public enum SunModel implements CelestialObjectModel<Sun> {
+public enum SunModel implements EphemerisModel<Sun> {
 
     SUN();
 
@@ -22,24 +22,48 @@ public enum SunModel implements CelestialObjectModel<Sun> {
     private static final double ECCENTRICITY_SQUARED = Math.pow( ECCENTRICITY, 2 );
 
     /**
-     * @param daysSinceJ2010 : number of days after the J2010 (possibly negative)
-     * @param eclipticToEquatorialConversion : Conversion used to get its equatorial coordinates from its ecliptic coordinates
-     * @return returns the Sun modeled by SunModel for the (possibly negative) number of days after
-     *         the given J2010 epoch, using the given conversion to obtain its equatorial coordinates from its ecliptic coordinates
+     * @param state : the state of the solar system, which contains the position of the Sun
+     * @param values : the array receiving the ecliptic longitude, the angular size and the mean anomaly of the Sun
      */
     @Override
-    public Sun at(
-            double daysSinceJ2010,
-            EclipticToEquatorialConversion eclipticToEquatorialConversion )
+    public void values( SolarSystemState state, double[] values )
     {
-        double meanAnomaly = ANGULAR_SPEED * daysSinceJ2010 + DELTA_LON;
-        double trueAnomaly = meanAnomaly + 2 * ECCENTRICITY * Math.sin( meanAnomaly );
+        values[ LON ] = state.sunLongitude();
+        values[ LAT ] = 0;
+        values[ ANGULAR_SIZE ] = THETA * ( 1 + ECCENTRICITY * Math.cos( state.sunTrueAnomaly() ) ) / ( 1 - ECCENTRICITY_SQUARED );
+        values[ MAGNITUDE ] = 0;
+        values[ EXTRA ] = state.sunMeanAnomaly();
+    }
 
-        EclipticCoordinates eclipticPos = EclipticCoordinates.of( lonInterval.reduce(trueAnomaly + LON_PERIGEE ), 0 );
+    /**
+     * @param values : the values of the Sun at an instant
+     * @param eclipticToEquatorialConversion : Conversion used to get its equatorial coordinates from its ecliptic coordinates
+     * @return returns the Sun having these values
+     */
+    @Override
+    public Sun of( double[] values, EclipticToEquatorialConversion eclipticToEquatorialConversion )
+    {
+        EclipticCoordinates eclipticPos = EclipticCoordinates.of( lonInterval.reduce( values[ LON ] ), 0 );
         EquatorialCoordinates equatorialPos = eclipticToEquatorialConversion.apply( eclipticPos );
 
-        double angularSize = THETA * ( 1 + ECCENTRICITY * Math.cos( trueAnomaly ) ) / ( 1 - ECCENTRICITY_SQUARED );
-
-        return new Sun( eclipticPos, equatorialPos, (float)angularSize, (float)meanAnomaly );
+        return new Sun( eclipticPos, equatorialPos, (float)values[ ANGULAR_SIZE ], (float)values[ EXTRA ] );
     }
+
+    /**
+     * @param daysSinceJ2010 : number of days after the J2010 (possibly negative)
+     * @return the mean anomaly of the Sun
+     */
+    static double meanAnomaly( double daysSinceJ2010 ) { return ANGULAR_SPEED * daysSinceJ2010 + DELTA_LON; }
+
+    /**
+     * @param meanAnomaly : the mean anomaly of the Sun
+     * @return the true anomaly of the Sun
+     */
+    static double trueAnomaly( double meanAnomaly ) { return meanAnomaly + 2 * ECCENTRICITY * Math.sin( meanAnomaly ); }
+
+    /**
+     * @param trueAnomaly : the true anomaly of the Sun
+     * @return the geocentric ecliptic longitude of the Sun (not reduced)
+     */
+    static double longitude( double trueAnomaly ) { return trueAnomaly + LON_PERIGEE; }
 }
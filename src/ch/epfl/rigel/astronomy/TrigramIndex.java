@@ -0,0 +1,188 @@
+package ch.epfl.rigel.astronomy;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Index of names by trigrams (sequences of three characters), used to find the names close to a query
+ * even if it is misspelled.
+ * The names are folded (lower case, without accents, only letters and digits separated by single spaces)
+ * and padded with a space on each side, so that their beginning and end are trigrams too. For each of the
+ * ALPHABET^3 trigrams, the names containing it are stored as compressed sparse rows.
+ * The similarity between a query and a name is the Jaccard index of their sets of trigrams, plus one if the
+ * name begins with the query, so that the names completing the query come first.
+ */
+public final class TrigramIndex
+{
+    // a space, the 26 letters, the 10 digits and any other character
+    private static final int ALPHABET = 38;
+    // names less similar to the query than this are never returned
+    private static final double MIN_SIMILARITY = 0.3;
+
+    // folded names, and their number of distinct trigrams
+    private final String[] keys;
+    private final int[] trigramCount;
+    // the names containing the trigram t are names[ nameStart[ t ] ] to names[ nameStart[ t + 1 ] - 1 ]
+    private final int[] nameStart;
+    private final int[] names;
+    // number of trigrams shared by the query and each name, reused by the searches of each thread : it is only
+    // non zero during a search, so that a search only clears the names it counted instead of the whole array
+    private final ThreadLocal<int[]> sharedCounts;
+
+    /**
+     * Builds the index of the given names
+     * @param names : the names, in order of priority : among equally similar names, the first one is preferred
+     */
+    public TrigramIndex( List<String> names )
+    {
+        int size = names.size();
+        keys = new String[ size ];
+        trigramCount = new int[ size ];
+        int[][] trigrams = new int[ size ][];
+        nameStart = new int[ ALPHABET * ALPHABET * ALPHABET + 1 ];
+        for ( int n = 0; n < size; n++ )
+        {
+            keys[ n ] = fold( names.get( n ) );
+            trigrams[ n ] = trigrams( keys[ n ] );
+            trigramCount[ n ] = trigrams[ n ].length;
+            for ( int t : trigrams[ n ] ) { nameStart[ t + 1 ]++; }
+        }
+        for ( int t = 0; t < nameStart.length - 1; t++ )
+        {
+            nameStart[ t + 1 ] += nameStart[ t ];
+        }
+
+        // the names of each trigram are in increasing order
+        this.names = new int[ nameStart[ nameStart.length - 1 ] ];
+        int[] next = Arrays.copyOf( nameStart, nameStart.length - 1 );
+        for ( int n = 0; n < size; n++ )
+        {
+            for ( int t : trigrams[ n ] ) { this.names[ next[ t ]++ ] = n; }
+        }
+        sharedCounts = ThreadLocal.withInitial( () -> new int[ size ] );
+    }
+
+    /**
+     * @param name : a name
+     * @return the name in lower case, without accents, with only letters and digits separated by single spaces
+     */
+    public static String fold( String name )
+    {
+        String decomposed = Normalizer.normalize( name, Normalizer.Form.NFD ).toLowerCase( Locale.ROOT );
+        StringBuilder folded = new StringBuilder( decomposed.length() );
+        for ( int i = 0; i < decomposed.length(); i++ )
+        {
+            char c = decomposed.charAt( i );
+            if ( Character.getType( c ) == Character.NON_SPACING_MARK ) { continue; }
+            if ( Character.isLetterOrDigit( c ) ) { folded.append( c ); }
+            else if ( folded.length() > 0 && folded.charAt( folded.length() - 1 ) != ' ' ) { folded.append( ' ' ); }
+        }
+        int length = folded.length();
+        if ( length > 0 && folded.charAt( length - 1 ) == ' ' ) { folded.setLength( length - 1 ); }
+        return folded.toString();
+    }
+
+    /**
+     * @param query : the query, in any case
+     * @param limit : maximum number of names to return
+     * @return the indices of the (at most limit) names most similar to the query, from the most similar one,
+     *         and by order of priority among equally similar names
+     */
+    public int[] search( String query, int limit )
+    {
+        String key = fold( query );
+        int[] queryTrigrams = trigrams( key );
+        if ( key.isEmpty() || limit <= 0 ) { return new int[ 0 ]; }
+
+        // number of trigrams shared by the query and each name sharing at least one
+        int[] shared = sharedCounts.get();
+        int[] candidates = new int[ 16 ];
+        int candidateCount = 0;
+        for ( int t : queryTrigrams )
+        {
+            for ( int p = nameStart[ t ]; p < nameStart[ t + 1 ]; p++ )
+            {
+                int n = names[ p ];
+                if ( shared[ n ]++ == 0 )
+                {
+                    if ( candidateCount == candidates.length ) { candidates = Arrays.copyOf( candidates, 2 * candidateCount ); }
+                    candidates[ candidateCount++ ] = n;
+                }
+            }
+        }
+
+        // the best names seen so far, from the most similar one
+        int[] best = new int[ limit ];
+        double[] bestSimilarity = new double[ limit ];
+        int count = 0;
+        for ( int c = 0; c < candidateCount; c++ )
+        {
+            int n = candidates[ c ];
+            double similarity = (double) shared[ n ] / ( queryTrigrams.length + trigramCount[ n ] - shared[ n ] );
+            if ( keys[ n ].startsWith( key ) ) { similarity += 1; }
+            if ( similarity < MIN_SIMILARITY ) { continue; }
+            if ( count == limit && !isBetter( similarity, n, bestSimilarity[ count - 1 ], best[ count - 1 ] ) ) { continue; }
+
+            // insertion of the name, the last one is dropped if there is no room left
+            int position = count < limit ? count++ : count - 1;
+            while ( position > 0 && isBetter( similarity, n, bestSimilarity[ position - 1 ], best[ position - 1 ] ) )
+            {
+                best[ position ] = best[ position - 1 ];
+                bestSimilarity[ position ] = bestSimilarity[ position - 1 ];
+                position--;
+            }
+            best[ position ] = n;
+            bestSimilarity[ position ] = similarity;
+        }
+
+        for ( int c = 0; c < candidateCount; c++ )
+        {
+            shared[ candidates[ c ] ] = 0;
+        }
+        return Arrays.copyOf( best, count );
+    }
+
+    /**
+     * @return true if the name n1 of the given similarity comes before the name n2 of the given similarity
+     */
+    private static boolean isBetter( double similarity1, int n1, double similarity2, int n2 )
+    {
+        return similarity1 > similarity2 || ( similarity1 == similarity2 && n1 < n2 );
+    }
+
+    /**
+     * @param key : a folded name
+     * @return the distinct trigrams of the name padded with a space on each side, in increasing order
+     */
+    private static int[] trigrams( String key )
+    {
+        String padded = " " + key + " ";
+        int[] trigrams = new int[ Math.max( 0, padded.length() - 2 ) ];
+        for ( int i = 0; i < trigrams.length; i++ )
+        {
+            trigrams[ i ] = ( code( padded.charAt( i ) ) * ALPHABET + code( padded.charAt( i + 1 ) ) ) * ALPHABET
+                    + code( padded.charAt( i + 2 ) );
+        }
+        Arrays.sort( trigrams );
+
+        int distinct = 0;
+        for ( int i = 0; i < trigrams.length; i++ )
+        {
+            if ( i == 0 || trigrams[ i ] != trigrams[ i - 1 ] ) { trigrams[ distinct++ ] = trigrams[ i ]; }
+        }
+        return Arrays.copyOf( trigrams, distinct );
+    }
+
+    /**
+     * @return the code of a character of a folded name, in [0, ALPHABET[
+     */
+    private static int code( char c )
+    {
+        if ( c == ' ' ) { return 0; }
+        if ( c >= 'a' && c <= 'z' ) { return 1 + c - 'a'; }
+        if ( c >= '0' && c <= '9' ) { return 27 + c - '0'; }
+        return ALPHABET - 1;
+    }
+}
@@ -34,7 +34,23 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
      */
     public EclipticToEquatorialConversion( ZonedDateTime when )
     {
-        double deltaJulianCenturies = Epoch.J2000.julianCenturiesUntil( when );
+        this( Epoch.J2000.julianCenturiesUntil( when ) );
+    }
+
+    /**
+     * change of coordinate system between ecliptic and equatorial coordinates at an instant
+     * @param epochMillis : the instant, in milliseconds since 1970-01-01T00:00Z
+     */
+    public EclipticToEquatorialConversion( long epochMillis )
+    {
+        this( Epoch.J2000.julianCenturiesUntil( epochMillis ) );
+    }
+
+    /**
+     * @param deltaJulianCenturies : number of julian centuries since J2000
+     */
+    private EclipticToEquatorialConversion( double deltaJulianCenturies )
+    {
         double epsilon = EPSILON_POLYNOMIAL.at( deltaJulianCenturies );
         cosEpsilon = Math.cos( epsilon );
         sinEpsilon = Math.sin( epsilon );
@@ -27,10 +27,21 @@ public final class EquatorialCoordinates extends SphericalCoordinates
      * @return the coordinates
      */
     public static EquatorialCoordinates of( double ra, double dec )
+    {
+        checkValid( ra, dec );
+        return new EquatorialCoordinates( ra, dec );
+    }
+
+    /**
+     * Checks that the given angles are valid equatorial coordinates, without creating them
+     * @param ra : right ascension
+     * @param dec : declination
+     * @throws IllegalArgumentException if the right ascension or the declination given is out of bound
+     */
+    public static void checkValid( double ra, double dec )
     {
         Preconditions.checkInInterval( RA_INTERVAL, ra );
         Preconditions.checkInInterval( DEC_INTERVAL, dec );
-        return new EquatorialCoordinates( ra, dec );
     }
 
     /**
@@ -28,7 +28,26 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
      */
     public EquatorialToHorizontalConversion( ZonedDateTime when, GeographicCoordinates where )
     {
-        this.localTime = SiderealTime.local( when, where );
+        this( SiderealTime.local( when, where ), where );
+    }
+
+    /**
+     * change of coordinate systems from equatorial coordinates to horizontal coordinates, at an instant and for a given location
+     * @param epochMillis : the instant, in milliseconds since 1970-01-01T00:00Z
+     * @param where : a position
+     */
+    public EquatorialToHorizontalConversion( long epochMillis, GeographicCoordinates where )
+    {
+        this( SiderealTime.local( epochMillis, where ), where );
+    }
+
+    /**
+     * @param localTime : the local sidereal time, in radians
+     * @param where : a position
+     */
+    private EquatorialToHorizontalConversion( double localTime, GeographicCoordinates where )
+    {
+        this.localTime = localTime;
         this.sinPhi = Math.sin( where.lat() );
         this.cosPhi = Math.cos( where.lat() );
     }
@@ -53,6 +72,41 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         return HorizontalCoordinates.of( LON_INTERVAL.reduce( azimut ), LAT_INTERVAL.clip( height ) );
     }
 
+    /**
+     * @return the local sidereal time of the conversion, in radians
+     */
+    double localTime() { return localTime; }
+
+    /**
+     * @return the sine of the latitude of the observer
+     */
+    double sinLatitude() { return sinPhi; }
+
+    /**
+     * @return the cosine of the latitude of the observer
+     */
+    double cosLatitude() { return cosPhi; }
+
+    /**
+     * Apply the inverse formula, which has the same form (the roles of the hour angle and the azimuth,
+     * and of the declination and the height, are exchanged)
+     * @param hor : Horizontal Coordinates
+     * @return : equatorial coordinates corresponding to horizontal coordinates (hor)
+     */
+    public EquatorialCoordinates inverseApply( HorizontalCoordinates hor )
+    {
+        double height = hor.alt();
+        double azimut = hor.az();
+
+        double sinHeight = Math.sin( height );
+        double cosHeight = Math.cos( height );
+
+        double declination = Math.asin( sinHeight * sinPhi + cosHeight * cosPhi * Math.cos( azimut ) );
+        double H = Math.atan2( ( -cosHeight * cosPhi * Math.sin( azimut ) ), ( sinHeight - sinPhi * Math.sin( declination ) ) );
+
+        return EquatorialCoordinates.of( LON_INTERVAL.reduce( localTime - H ), LAT_INTERVAL.clip( declination ) );
+    }
+
     @Override
     public int hashCode() {
         throw new UnsupportedOperationException();
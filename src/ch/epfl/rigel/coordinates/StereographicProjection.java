@@ -22,6 +22,8 @@ public final class StereographicProjection implements Function<HorizontalCoordin
     private final double phi1;
     private final double cosPhi1;
     private final double sinPhi1;
+    private final double cosLambda0;
+    private final double sinLambda0;
 
     /**
      * Returns a stereographic projection centered in "center"
@@ -35,8 +37,15 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         phi1 = center.lat();
         cosPhi1 = Math.cos( phi1 );
         sinPhi1 = Math.sin( phi1 );
+        cosLambda0 = Math.cos( lambda0 );
+        sinLambda0 = Math.sin( lambda0 );
     }
 
+    /**
+     * @return the center of the projection
+     */
+    public HorizontalCoordinates center() { return center; }
+
     /**
      * @param hor : a point in HorizontalCoordinates
      * @return :the coordinates of the centre of the circle corresponding to the projection of the parallel passing through the point hor
@@ -86,6 +95,135 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         return CartesianCoordinates.of( x, y );
     }
 
+    /**
+     * Converts to horizontal coordinates and projects a batch of equatorial coordinates given as primitive arrays,
+     * in a single loop which creates no object : the unit vector of each point in the equatorial frame is
+     * projected through the same composed matrix as applyToEquatorialVectors
+     * @param conversion : the conversion from equatorial to horizontal coordinates
+     * @param ra : right ascensions, in radians
+     * @param dec : declinations, in radians
+     * @param indices : indices in ra and dec of the points to project
+     * @param count : number of points to project, the first ones of indices
+     * @param xy : the array where the projections are written : x of the point indices[ k ] at 2 * k
+     *           and y at 2 * k + 1
+     */
+    public void applyToEquatorial( EquatorialToHorizontalConversion conversion,
+                                   double[] ra, double[] dec, int[] indices, int count, double[] xy )
+    {
+        EquatorialMatrix matrix = equatorialMatrix( conversion );
+        for ( int k = 0; k < count; k++ )
+        {
+            int i = indices[ k ];
+            double cosDelta = Math.cos( dec[ i ] );
+            matrix.project( cosDelta * Math.cos( ra[ i ] ), cosDelta * Math.sin( ra[ i ] ), Math.sin( dec[ i ] ), xy, k );
+        }
+    }
+
+    /**
+     * Converts to horizontal coordinates and projects a batch of points given by their (unit) vectors in the
+     * equatorial frame : x towards the vernal equinox, z towards the north celestial pole.
+     * The conversion and the rotation bringing the center of the projection in front of the observer are composed
+     * once into a single matrix, so that projecting a point costs 9 multiply-adds and a division
+     * @param conversion : the conversion from equatorial to horizontal coordinates
+     * @param x : first coordinate of the vectors
+     * @param y : second coordinate of the vectors
+     * @param z : third coordinate of the vectors
+     * @param indices : indices in x, y and z of the points to project
+     * @param count : number of points to project, the first ones of indices
+     * @param xy : the array where the projections are written : x of the point indices[ k ] at 2 * k
+     *           and y at 2 * k + 1
+     */
+    public void applyToEquatorialVectors( EquatorialToHorizontalConversion conversion,
+                                          double[] x, double[] y, double[] z, int[] indices, int count, double[] xy )
+    {
+        applyToEquatorialVectors( conversion, x, y, z, indices, 0, count, xy );
+    }
+
+    /**
+     * Same as applyToEquatorialVectors( conversion, x, y, z, indices, count, xy ), for the points indices[ from ]
+     * to indices[ to - 1 ] only : the other elements of xy are not written, so that disjoint ranges can be
+     * projected at the same time by different threads
+     * @param from : index in indices of the first point to project
+     * @param to : index in indices following the last point to project
+     */
+    public void applyToEquatorialVectors( EquatorialToHorizontalConversion conversion,
+                                          double[] x, double[] y, double[] z, int[] indices, int from, int to, double[] xy )
+    {
+        EquatorialMatrix matrix = equatorialMatrix( conversion );
+        // no trigonometric function is computed per point : each one is a matrix product and a division
+        for ( int k = from; k < to; k++ )
+        {
+            int i = indices[ k ];
+            matrix.project( x[ i ], y[ i ], z[ i ], xy, k );
+        }
+    }
+
+    /**
+     * Composes the conversion to horizontal coordinates with the rotation bringing the center of the projection
+     * in front of the observer
+     * @param conversion : the conversion from equatorial to horizontal coordinates
+     * @return the composed matrix
+     */
+    private EquatorialMatrix equatorialMatrix( EquatorialToHorizontalConversion conversion )
+    {
+        double sinPhi = conversion.sinLatitude();
+        double cosPhi = conversion.cosLatitude();
+        double sinTheta = Math.sin( conversion.localTime() );
+        double cosTheta = Math.cos( conversion.localTime() );
+
+        // rows of the horizontal frame (north, east, up) in the equatorial frame
+        double nx = -sinPhi * cosTheta, ny = -sinPhi * sinTheta, nz = cosPhi;
+        double ex = -sinTheta, ey = cosTheta;
+        double ux = cosPhi * cosTheta, uy = cosPhi * sinTheta, uz = sinPhi;
+
+        // rotated by the azimuth of the center : cos( alt ) cos( az - lambda0 ) and cos( alt ) sin( az - lambda0 )
+        double cx = nx * cosLambda0 + ex * sinLambda0, cy = ny * cosLambda0 + ey * sinLambda0, cz = nz * cosLambda0;
+        double sx = ex * cosLambda0 - nx * sinLambda0, sy = ey * cosLambda0 - ny * sinLambda0, sz = -nz * sinLambda0;
+
+        // then by the altitude of the center
+        return new EquatorialMatrix( sx, sy, sz,
+                ux * cosPhi1 - cx * sinPhi1, uy * cosPhi1 - cy * sinPhi1, uz * cosPhi1 - cz * sinPhi1,
+                ux * sinPhi1 + cx * cosPhi1, uy * sinPhi1 + cy * cosPhi1, uz * sinPhi1 + cz * cosPhi1 );
+    }
+
+    /**
+     * The conversion from equatorial to horizontal coordinates composed with the rotation bringing the center of
+     * the projection in front of the observer. Its coefficients are final fields, so that they stay in registers
+     * while the projections are written
+     */
+    private static final class EquatorialMatrix
+    {
+        // for a unit vector p in the equatorial frame, w.p is the component towards the center,
+        // s.p the horizontal one and v.p the vertical one
+        private final double sx, sy, sz, vx, vy, vz, wx, wy, wz;
+
+        private EquatorialMatrix( double sx, double sy, double sz, double vx, double vy, double vz,
+                                  double wx, double wy, double wz )
+        {
+            this.sx = sx;
+            this.sy = sy;
+            this.sz = sz;
+            this.vx = vx;
+            this.vy = vy;
+            this.vz = vz;
+            this.wx = wx;
+            this.wy = wy;
+            this.wz = wz;
+        }
+
+        /**
+         * Projects a point given by its unit vector in the equatorial frame
+         * @param xy : the array where the projection is written, at 2 * k and 2 * k + 1
+         * @param k : the position of the point in xy
+         */
+        private void project( double x, double y, double z, double[] xy, int k )
+        {
+            double d = 1 / ( 1 + wx * x + wy * y + wz * z );
+            xy[ 2 * k ] = d * ( sx * x + sy * y + sz * z );
+            xy[ 2 * k + 1 ] = d * ( vx * x + vy * y + vz * z );
+        }
+    }
+
     /**
      * @param xy Cartesian coordinates of a point
      * @return : the horizontal coordinates of the point whose projection is the point of Cartesian coordinates xy
@@ -1,6 +1,9 @@
 package ch.epfl.rigel.gui;
 
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleObjectProperty;
 
 import java.time.*;
@@ -9,12 +12,25 @@ import java.time.*;
  * containing the instant of observation, the triplet (date, time, time zone) of observation.
  * For all properties there is a getProperty, a getValue and a set
  * All properties value can be get/set at one time using a ZonedDateTime which is very convenient
+ * The instant itself is a property too, changed once when the three properties are set at one time
  */
 public final class DateTimeBean
 {
     private final ObjectProperty<LocalDate> dateProperty = new SimpleObjectProperty<>( null );
     private final ObjectProperty<LocalTime> timeProperty = new SimpleObjectProperty<>( null );
     private final ObjectProperty<ZoneId>    zoneProperty = new SimpleObjectProperty<>( null );
+    private final ReadOnlyObjectWrapper<ZonedDateTime> zonedDateTimeProperty = new ReadOnlyObjectWrapper<>( null );
+
+    // true while the three properties are set at one time, the instant is then updated once at the end
+    private boolean updating = false;
+
+    public DateTimeBean()
+    {
+        InvalidationListener listener = o -> { if ( !updating ) { updateZonedDateTime(); } };
+        dateProperty.addListener( listener );
+        timeProperty.addListener( listener );
+        zoneProperty.addListener( listener );
+    }
 
 
     /** Date **/
@@ -42,12 +58,31 @@ public final class DateTimeBean
 
 
     /** ZonedDateTime **/
+    public ReadOnlyObjectProperty<ZonedDateTime> zonedDateTimeProperty() { return zonedDateTimeProperty.getReadOnlyProperty(); }
+
     public ZonedDateTime getZonedDateTime() { return ZonedDateTime.of( LocalDateTime.of( getDate(), getTime() ), getZone() ); }
 
     public void setZonedDateTime( ZonedDateTime zonedDateTime )
     {
-        setDate( zonedDateTime.toLocalDate() );
-        setTime( zonedDateTime.toLocalTime() );
-        setZone( zonedDateTime.getZone() );
+        updating = true;
+        try
+        {
+            setDate( zonedDateTime.toLocalDate() );
+            setTime( zonedDateTime.toLocalTime() );
+            setZone( zonedDateTime.getZone() );
+        }
+        finally
+        {
+            updating = false;
+        }
+        updateZonedDateTime();
+    }
+
+    /**
+     * Sets the instant from the date, the time and the zone, once they are all known
+     */
+    private void updateZonedDateTime()
+    {
+        if ( getDate() != null && getTime() != null && getZone() != null ) { zonedDateTimeProperty.set( getZonedDateTime() ); }
     }
 }
@@ -0,0 +1,43 @@
+package ch.epfl.rigel.gui;
+
+/**
+ * Represents a rule giving the limiting magnitude of the sky, i.e. the magnitude of the faintest stars drawn,
+ * based on the field of view and the size of the canvas.
+ */
+@FunctionalInterface
+public interface LimitingMagnitudeRule
+{
+    /**
+     * @param fieldOfViewDeg : the (horizontal) field of view, in degrees
+     * @param canvasWidth    : the width of the canvas, in pixels
+     * @param canvasHeight   : the height of the canvas, in pixels
+     * @return the magnitude of the faintest stars to draw
+     */
+    double limitingMagnitude( double fieldOfViewDeg, double canvasWidth, double canvasHeight );
+
+    /**
+     * @return a rule drawing all the stars, whatever the field of view
+     */
+    static LimitingMagnitudeRule unlimited()
+    {
+        return ( fieldOfViewDeg, canvasWidth, canvasHeight ) -> Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * The more pixels a degree of the sky covers (i.e. the more it is zoomed in), the fainter the drawn stars :
+     * as through a telescope, magnifying the sky by a factor k shows stars 5 * log10( k ) magnitudes fainter
+     * @param baseMagnitude         : the limiting magnitude when a degree covers referencePixelsPerDeg pixels
+     * @param referencePixelsPerDeg : the number of pixels per degree of the base magnitude
+     * @return a rule depending on the number of pixels per degree of the canvas
+     */
+    static LimitingMagnitudeRule pixelDensity( double baseMagnitude, double referencePixelsPerDeg )
+    {
+        return ( fieldOfViewDeg, canvasWidth, canvasHeight ) ->
+        {
+            // the canvas is not laid out yet, nothing is hidden
+            if ( canvasWidth <= 0 ) { return Double.POSITIVE_INFINITY; }
+            double pixelsPerDeg = canvasWidth / fieldOfViewDeg;
+            return baseMagnitude + 5 * Math.log10( pixelsPerDeg / referencePixelsPerDeg );
+        };
+    }
+}
@@ -6,12 +6,14 @@ import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import javafx.animation.FadeTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.StringExpression;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Orientation;
 import javafx.geometry.Rectangle2D;
+import javafx.geometry.Side;
 import javafx.geometry.VPos;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
@@ -31,10 +33,19 @@ import javafx.util.converter.LocalTimeStringConverter;
 import javafx.util.converter.NumberStringConverter;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.UnaryOperator;
 
 
@@ -43,6 +54,8 @@ public class Main extends Application
 {
     // file names to load the stars and asterisms
     private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    // binary version of the HYG catalogue (see BinaryCatalogueCompiler), used instead of the csv when present
+    private static final String HYG_BINARY_CATALOGUE_NAME = "/hygdata_v3.bin";
     private static final String ASTERISM_CATALOGUE_NAME = "/asterisms.txt";
 
     // Buttons text and backup text if the font cant load
@@ -111,6 +124,17 @@ public class Main extends Application
     private static final int RECT_HEIGHT = 20;
     private static final int TRIANGLE_START = 5;
     private static final int TRIANGLE_WIDTH = 6;
+    // number of suggestions shown under the search bar
+    private static final int SEARCH_SUGGESTIONS = 8;
+
+    // the searches run one after the other on this thread, so that the FX thread never waits for them
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "sky-search" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    // the search index, built in the background once the catalogue is loaded
+    private CompletableFuture<SkySearch> skySearch;
 
     // an input stream to read the files
     private InputStream resourceStream( String resourceName )
@@ -118,6 +142,22 @@ public class Main extends Application
         return getClass().getResourceAsStream( resourceName );
     }
 
+    // the path of a resource file, null if the resource is not a file (e.g. inside a jar) or does not exist
+    private Path resourcePath( String resourceName )
+    {
+        URL url = getClass().getResource( resourceName );
+        if ( url == null || !"file".equals( url.getProtocol() ) ) { return null; }
+        try
+        {
+            Path path = Paths.get( url.toURI() );
+            return Files.isRegularFile( path ) ? path : null;
+        }
+        catch ( URISyntaxException | IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
 
     public static void main( String[] args )
     {
@@ -192,13 +232,26 @@ public class Main extends Application
      */
     private void initLoadFiles()
     {
-        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        // the built catalogue is cached, so that the files are only loaded again when they change
+        StarCatalogueCache cache = new StarCatalogueCache( StarCatalogueCache.defaultDirectory() );
         StarCatalogue catalogue;
 
-        // Stars
-        try ( InputStream hygStream = resourceStream( HYG_CATALOGUE_NAME ) )
+        // Stars, from the binary catalogue : memory-mapped when it is a file, read from the resource stream otherwise
+        Path binaryPath = resourcePath( HYG_BINARY_CATALOGUE_NAME );
+        try ( InputStream binaryStream = binaryPath == null ? resourceStream( HYG_BINARY_CATALOGUE_NAME ) : null )
         {
-            builder.loadFrom( hygStream, HygDatabaseLoader.INSTANCE);
+            if ( binaryPath != null )
+            {
+                cache.add( binaryPath, BinaryCatalogueLoader.INSTANCE );
+            }
+            else if ( binaryStream != null )
+            {
+                cache.add( binaryStream, BinaryCatalogueLoader.INSTANCE );
+            }
+            else
+            {
+                cache.add( resourceStream( HYG_CATALOGUE_NAME ), HygDatabaseLoader.INSTANCE, ForkJoinPool.commonPool() );
+            }
         } catch ( IOException e )
         {
             loadedResources = false;
@@ -206,9 +259,10 @@ public class Main extends Application
         }
 
         // Asterisms
-        try ( InputStream asterismStream = resourceStream( ASTERISM_CATALOGUE_NAME ) )
+        try
         {
-            builder.loadFrom( asterismStream, AsterismLoader.INSTANCE );
+            cache.add( resourceStream( ASTERISM_CATALOGUE_NAME ), AsterismLoader.INSTANCE );
+            catalogue = cache.build();
         }
         catch ( IOException e )
         {
@@ -216,12 +270,19 @@ public class Main extends Application
             return;
         }
 
-        catalogue = builder.build();
-
         canvasManager = new SkyCanvasManager(
                 catalogue, dateTimeBean,
                 observerLocationBean, viewingParametersBean );
 
+        // the objects of the solar system are only indexed by name, their positions are taken when they are found
+        ObservedSky observedSky = canvasManager.getObservedSky();
+        List<CelestialObject> solarObjects = new ArrayList<>();
+        solarObjects.add( observedSky.sun() );
+        solarObjects.add( observedSky.moon() );
+        solarObjects.addAll( observedSky.planets() );
+        StarCatalogue searchedCatalogue = catalogue;
+        skySearch = CompletableFuture.supplyAsync( () -> new SkySearch( searchedCatalogue, solarObjects ), searchExecutor );
+
         // load the font with the fontLoader class
         fontAwesome = new FontLoader().loadFontAwesome();
         if ( fontAwesome != null ) { loadedFont = true; }
@@ -487,9 +548,9 @@ public class Main extends Application
     }
 
     /**
-     * Create the search bar and set an event on key (Enter) released
-     * if a celestial object is found by canvasManager.getCoordinatesWithName( inputValue ) set de center of
-     * the ViewingParameterBean on the celestial object and draw a label on the Canvas
+     * Create the search bar with its suggestions, computed in the background as the user types, and set an event
+     * on key (Enter) released : the celestial object found by canvasManager.getCoordinatesWithName( inputValue ),
+     * or else the most similar one, is centered by centerOn
      * @return HBox containing the searchBar
      */
     private HBox initSearchBar()
@@ -498,43 +559,52 @@ public class Main extends Application
         TextField searchText = new TextField();
         searchText.setStyle( "-fx-pref-width: 100; -fx-alignment: baseline-left; -fx-padding-left: 5pt; " );
 
+        ContextMenu suggestions = new ContextMenu();
+        // the last query typed, the older ones are not searched for anymore
+        AtomicReference<String> latestQuery = new AtomicReference<>( "" );
+
+        searchText.textProperty().addListener( ( o, oV, query ) -> {
+            latestQuery.set( query );
+            if ( query.isBlank() || skySearch == null )
+            {
+                suggestions.hide();
+                return;
+            }
+
+            skySearch.thenApplyAsync( search ->
+                    query.equals( latestQuery.get() ) ? search.search( query, SEARCH_SUGGESTIONS ) : null, searchExecutor )
+                    .thenAcceptAsync( matches -> {
+                        // the results of an outdated query are dropped
+                        if ( matches == null || !query.equals( searchText.getText() ) ) { return; }
+
+                        List<MenuItem> items = new ArrayList<>();
+                        for ( SkySearch.Match match : matches )
+                        {
+                            MenuItem item = new MenuItem( match.label() );
+                            item.setOnAction( actionEvent -> centerOn( match.in( canvasManager.getObservedSky() ) ) );
+                            items.add( item );
+                        }
+                        suggestions.getItems().setAll( items );
+                        if ( items.isEmpty() ) { suggestions.hide(); }
+                        else if ( !suggestions.isShowing() ) { suggestions.show( searchText, Side.BOTTOM, 0, 0 ); }
+                    }, Platform::runLater );
+        } );
+
         searchText.setOnKeyReleased( keyEvent -> {
             KeyCode key = keyEvent.getCode(); // get the key
             String inputValue = searchText.getText();
             if( key.equals( KeyCode.ENTER ) && inputValue.length() > 0 )
             {
-                // create a EquatorialToHorizontalConversion
-                EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(
-                        dateTimeBean.getZonedDateTime(), observerLocationBean.getCoordinates() );
+                suggestions.hide();
                 CelestialObject celestialObject = canvasManager.getCoordinatesWithName( inputValue );
-                if ( celestialObject != null )
+                // no name begins with the input, the most similar one is taken if the index is ready
+                SkySearch search = skySearch == null ? null : skySearch.getNow( null );
+                if ( celestialObject == null && search != null )
                 {
-                    // Set the Center on the Celestial Object
-                    viewingParametersBean.setCenter( conversion.apply( celestialObject.equatorialPos() ) );
-
-                    GraphicsContext ctx = sky.getGraphicsContext2D();
-                    String objectName = celestialObject.name();
-                    double halfWidth  = sky.getWidth()  / 2;
-                    double halfHeight = sky.getHeight() / 2;
-
-                    double rectWidth = ( objectName.length() * LETTER_WIDTH ) + RECT_PADDING;
-                    double endTriangleX = halfWidth + TRIANGLE_START + TRIANGLE_WIDTH;
-
-                    double[] trianglePointsX = new double[] {
-                            halfWidth + TRIANGLE_START, endTriangleX, endTriangleX };
-                    double[] trianglePointsY = new double[] {
-                            halfHeight, halfHeight - TRIANGLE_WIDTH, halfHeight + TRIANGLE_WIDTH };
-
-
-                    // draw the label with one rectangle and a triangle
-                    ctx.setFill( celestialObject.getBackgroundColor() );
-                    ctx.fillPolygon( trianglePointsX, trianglePointsY, 3 );
-                    ctx.fillRect( endTriangleX, halfHeight - RECT_HEIGHT / 2d, rectWidth, RECT_HEIGHT );
-                    ctx.setFill( celestialObject.getTextColor() );
-                    ctx.setFont( fontAwesome );
-                    ctx.setTextBaseline( VPos.CENTER );
-                    ctx.fillText( objectName, endTriangleX + rectWidth / 2, halfHeight + 1 );
+                    List<SkySearch.Match> matches = search.search( inputValue, 1 );
+                    if ( !matches.isEmpty() ) { celestialObject = matches.get( 0 ).in( canvasManager.getObservedSky() ); }
                 }
+                if ( celestialObject != null ) { centerOn( celestialObject ); }
             }
         } );
 
@@ -543,6 +613,45 @@ public class Main extends Application
         return searchBox;
     }
 
+    /**
+     * Set the center of the ViewingParameterBean on the celestial object and draw a label on the Canvas
+     * @param celestialObject : the celestial object to center
+     */
+    private void centerOn( CelestialObject celestialObject )
+    {
+        // create a EquatorialToHorizontalConversion
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(
+                dateTimeBean.getZonedDateTime(), observerLocationBean.getCoordinates() );
+
+        // Set the Center on the Celestial Object
+        viewingParametersBean.setCenter( conversion.apply( celestialObject.equatorialPos() ) );
+
+        // the label is drawn on the layer of the annotations, above the sky which is redrawn without it
+        canvasManager.clearAnnotations();
+        GraphicsContext ctx = canvasManager.annotationCanvas().getGraphicsContext2D();
+        String objectName = celestialObject.name();
+        double halfWidth  = sky.getWidth()  / 2;
+        double halfHeight = sky.getHeight() / 2;
+
+        double rectWidth = ( objectName.length() * LETTER_WIDTH ) + RECT_PADDING;
+        double endTriangleX = halfWidth + TRIANGLE_START + TRIANGLE_WIDTH;
+
+        double[] trianglePointsX = new double[] {
+                halfWidth + TRIANGLE_START, endTriangleX, endTriangleX };
+        double[] trianglePointsY = new double[] {
+                halfHeight, halfHeight - TRIANGLE_WIDTH, halfHeight + TRIANGLE_WIDTH };
+
+
+        // draw the label with one rectangle and a triangle
+        ctx.setFill( celestialObject.getBackgroundColor() );
+        ctx.fillPolygon( trianglePointsX, trianglePointsY, 3 );
+        ctx.fillRect( endTriangleX, halfHeight - RECT_HEIGHT / 2d, rectWidth, RECT_HEIGHT );
+        ctx.setFill( celestialObject.getTextColor() );
+        ctx.setFont( fontAwesome );
+        ctx.setTextBaseline( VPos.CENTER );
+        ctx.fillText( objectName, endTriangleX + rectWidth / 2, halfHeight + 1 );
+    }
+
 
     /**
      * Adds mouse clicked events to the buttons
@@ -677,7 +786,7 @@ public class Main extends Application
 
         // if we achieve to build the star catalogue, then we can draw the sky
         sky = canvasManager.canvas();
-        skyPane = new Pane( sky );
+        skyPane = new Pane( canvasManager.layers() );
         initObjectUnderMouseListener();
         return skyPane;
     }
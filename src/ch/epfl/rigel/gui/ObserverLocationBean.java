@@ -1,12 +1,14 @@
 package ch.epfl.rigel.gui;
 
 import ch.epfl.rigel.coordinates.GeographicCoordinates;
-import javafx.beans.binding.Bindings;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.value.ObservableObjectValue;
 /**
  * Represents the position of the observer in Geographic Coordinates
+ * The coordinates change once when the longitude and the latitude are set at one time
  */
 public class ObserverLocationBean
 {
@@ -14,10 +16,19 @@ public class ObserverLocationBean
     private final DoubleProperty lonDegObserver = new SimpleDoubleProperty( 0 );
     // latitude of the observer in degrees
     private final DoubleProperty latDegObserver = new SimpleDoubleProperty( 0 );
-    // the geographic coordinates, bound to the observer longitude and latitude
-    private final ObservableObjectValue<GeographicCoordinates> coordinates = Bindings.createObjectBinding( () ->
-        GeographicCoordinates.ofDeg( lonDegObserver.getValue(), latDegObserver.getValue() ),
-        this.lonDegObserver, this.latDegObserver );
+    // the geographic coordinates, updated with the observer longitude and latitude
+    private final ReadOnlyObjectWrapper<GeographicCoordinates> coordinates =
+            new ReadOnlyObjectWrapper<>( GeographicCoordinates.ofDeg( 0, 0 ) );
+
+    // true while the longitude and the latitude are set at one time, the coordinates are then updated once at the end
+    private boolean updating = false;
+
+    public ObserverLocationBean()
+    {
+        InvalidationListener listener = o -> { if ( !updating ) { updateCoordinates(); } };
+        lonDegObserver.addListener( listener );
+        latDegObserver.addListener( listener );
+    }
 
     /* Longitude */
     public DoubleProperty lonDegProperty()
@@ -55,7 +66,7 @@ public class ObserverLocationBean
     /* Geographic Coordinates */
     public ObservableObjectValue<GeographicCoordinates> coordinatesProperty()
     {
-        return coordinates;
+        return coordinates.getReadOnlyProperty();
     }
 
     public GeographicCoordinates getCoordinates()
@@ -65,7 +76,24 @@ public class ObserverLocationBean
 
     public void setCoordinates( GeographicCoordinates geographicCoordinates )
     {
-        setLonDeg( geographicCoordinates.lonDeg() );
-        setLatDeg( geographicCoordinates.latDeg() );
+        updating = true;
+        try
+        {
+            setLonDeg( geographicCoordinates.lonDeg() );
+            setLatDeg( geographicCoordinates.latDeg() );
+        }
+        finally
+        {
+            updating = false;
+        }
+        updateCoordinates();
+    }
+
+    /**
+     * Sets the coordinates from the longitude and the latitude
+     */
+    private void updateCoordinates()
+    {
+        coordinates.set( GeographicCoordinates.ofDeg( getLonDeg(), getLatDeg() ) );
     }
 }
@@ -5,8 +5,11 @@ import ch.epfl.rigel.coordinates.*;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.ClosedInterval;
 import ch.epfl.rigel.math.RightOpenInterval;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableDoubleValue;
 import javafx.beans.value.ObservableObjectValue;
@@ -14,6 +17,8 @@ import javafx.beans.value.ObservableStringValue;
 import javafx.geometry.Point2D;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.input.KeyCode;
+import javafx.scene.layout.Pane;
+import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Transform;
 
 import java.util.ArrayList;
@@ -42,16 +47,44 @@ public class SkyCanvasManager
     // Angles to move when pressing an arrow key
     private static final int LONGITUDE_DISTANCE = 10;
     private static final int LATITUDE_DISTANCE = 5;
+    // margin added to the visible part of the sky, for the stars on the border of the canvas
+    private static final double VISIBLE_MARGIN = Angle.ofDeg( 1 );
+    // limiting magnitude of 5 at 4 pixels per degree, i.e. at a FOV of 200 degrees on the default canvas
+    private static final LimitingMagnitudeRule DEFAULT_LIMITING_MAGNITUDE = LimitingMagnitudeRule.pixelDensity( 5, 4 );
+    // ephemeris of the solar system : windows of 4 days, errors under 0.2 arcsecond, a year of windows kept
+    private static final double EPHEMERIS_WINDOW_DAYS = 4;
+    private static final double EPHEMERIS_MAX_ERROR = Angle.ofArcsec( 0.2 );
+    private static final int EPHEMERIS_CAPACITY = 92;
     // canvas size
     private static final int CANVAS_WIDTH = 800;
     private static final int CANVAS_HEIGHT = 600;
 
+    // the layers of the sky, stacked from the bottom : the stars (which receives the events), the objects of the solar
+    // system, the horizon, and the annotations of the user interface, which are drawn by their owners
     private final Canvas canvas;
+    private final Canvas solarSystemCanvas;
+    private final Canvas overlayCanvas;
+    private final Canvas annotationCanvas;
+    private final Pane layers;
     private final ObservableObjectValue<StereographicProjection> projectionBind;
     private final ObservableObjectValue<Transform> planeToCanvasBind;
-    private final ObservableObjectValue<ObservedSky> observedSkyBind;
+    // the inputs of the sky, invalidated when one of them changes
+    private final ObservableObjectValue<SkyWorker.Request> skyRequestBind;
+    // the last sky computed by the worker and drawn, with the inputs it was computed for
+    // (the buffers of a sky are reused by the worker once it is replaced : a sky is only valid while it is shown)
+    private final ReadOnlyObjectWrapper<ObservedSky> observedSky = new ReadOnlyObjectWrapper<>();
+    private SkyWorker.Frame currentFrame;
+    private final SkyWorker skyWorker;
     private final ObservableObjectValue<HorizontalCoordinates> mouseHorizontalPosition;
+    private final Ephemeris ephemeris = new Ephemeris( EPHEMERIS_WINDOW_DAYS, EPHEMERIS_MAX_ERROR, EPHEMERIS_CAPACITY );
     private final ObjectProperty<Point2D> mousePosition = new SimpleObjectProperty<>( new Point2D( 0, 0 ) );
+    private final ObjectProperty<LimitingMagnitudeRule> limitingMagnitudeRule =
+            new SimpleObjectProperty<>( DEFAULT_LIMITING_MAGNITUDE );
+
+    // name of the object under the mouse, updated when the sky is drawn and when the mouse moves
+    private final ReadOnlyStringWrapper objectUnderMouseName = new ReadOnlyStringWrapper( "" );
+    // true if the inputs of the sky have to be sent to the worker at the end of the current pulse
+    private boolean renderRequested = false;
 
     public final ObservableDoubleValue mouseAzDeg, mouseAltDeg;
     public final ObservableStringValue objectUnderMouse;
@@ -76,13 +109,25 @@ public class SkyCanvasManager
             ViewingParametersBean viewingParametersBean )
     {
         canvas = new Canvas( CANVAS_WIDTH, CANVAS_HEIGHT );
-        SkyCanvasPainter painter = new SkyCanvasPainter( canvas );
+        solarSystemCanvas = initLayer();
+        overlayCanvas = initLayer();
+        annotationCanvas = initLayer();
+        layers = new Pane( canvas, solarSystemCanvas, overlayCanvas, annotationCanvas );
+        SkyCanvasPainter painter = new SkyCanvasPainter( canvas, solarSystemCanvas, overlayCanvas );
 
         projectionBind = initProjectionBind( viewingParametersBean );
 
         planeToCanvasBind = initPlaneToCanvasBind( viewingParametersBean );
 
-        observedSkyBind = initObservedSkyBind( dateTimeBean, observerLocationBean, catalogue );
+        skyRequestBind = initSkyRequestBind( dateTimeBean, observerLocationBean, viewingParametersBean );
+
+        // the first sky is computed directly, so that there is always a sky, the next ones by the worker
+        SkyWorker.Request firstRequest = skyRequestBind.get();
+        currentFrame = new SkyWorker.Frame( firstRequest, new ObservedSky(
+                firstRequest.moment(), firstRequest.position(), firstRequest.projection(), catalogue,
+                firstRequest.visibleRadius(), firstRequest.limitingMagnitude(), ephemeris ) );
+        observedSky.set( currentFrame.sky() );
+        skyWorker = new SkyWorker( currentFrame, frame -> showFrame( painter, frame ) );
 
         initKeyPressedEvent( viewingParametersBean );
 
@@ -98,9 +143,24 @@ public class SkyCanvasManager
         this.mouseAzDeg  = Bindings.createDoubleBinding( () -> mouseHorizontalPosition.get().azDeg(),  mouseHorizontalPosition );
         this.mouseAltDeg = Bindings.createDoubleBinding( () -> mouseHorizontalPosition.get().altDeg(), mouseHorizontalPosition );
 
-        this.objectUnderMouse = initObjectUnderMouseBind();
+        this.objectUnderMouse = objectUnderMouseName.getReadOnlyProperty();
+        mousePosition.addListener( o -> updateObjectUnderMouse() );
+
+        initEventListener();
+        showFrame( painter, currentFrame );
+    }
 
-        initEventListener( painter );
+    /**
+     * Creates a layer above the canvas, of the same size, which lets the mouse events go through to the canvas
+     * @return the layer
+     */
+    private Canvas initLayer()
+    {
+        Canvas layer = new Canvas( CANVAS_WIDTH, CANVAS_HEIGHT );
+        layer.widthProperty().bind( canvas.widthProperty() );
+        layer.heightProperty().bind( canvas.heightProperty() );
+        layer.setMouseTransparent( true );
+        return layer;
     }
 
     /**
@@ -150,30 +210,48 @@ public class SkyCanvasManager
     }
 
     /**
-     * Initiate a bind containing the actual ObservedSky.
-     * Bound to the DateTimeBean properties, the observer coordinates and the stereographic projection
+     * Initiate a bind containing the inputs of the ObservedSky, restricted to the part of the sky visible in the canvas
+     * and to the stars brighter than the limiting magnitude.
+     * Bound to the DateTimeBean properties, the observer coordinates, the stereographic projection,
+     * the plane to canvas transformation, the FOV and the limiting magnitude rule
      * @param dateTimeBean : the DateTimeBean
      * @param observerLocationBean : the ObserverLocationBean
-     * @param catalogue : the StarCatalogue containing the stars and asterisms
-     * @return an ObservableObjectValue of the ObservedSky
+     * @param viewingParametersBean : the ViewingParametersBean to get the FOV
+     * @return an ObservableObjectValue of the inputs of the ObservedSky
      */
-    private ObservableObjectValue<ObservedSky> initObservedSkyBind(
-            DateTimeBean dateTimeBean, ObserverLocationBean observerLocationBean, StarCatalogue catalogue )
+    private ObservableObjectValue<SkyWorker.Request> initSkyRequestBind(
+            DateTimeBean dateTimeBean, ObserverLocationBean observerLocationBean,
+            ViewingParametersBean viewingParametersBean )
     {
         return Bindings.createObjectBinding( () ->
-                        new ObservedSky(
-                                dateTimeBean.getZonedDateTime(),
-                                observerLocationBean.getCoordinates(),
-                                projectionBind.get(),
-                                catalogue ),
-                dateTimeBean.timeProperty(),
-                dateTimeBean.dateProperty(),
-                dateTimeBean.zoneProperty(),
+                {
+                    Transform planeToCanvas = planeToCanvasBind.get();
+                    double limitingMagnitude = limitingMagnitudeRule.get().limitingMagnitude(
+                            viewingParametersBean.getFieldOfViewDeg(), canvas.getWidth(), canvas.getHeight() );
+                    return new SkyWorker.Request( dateTimeBean.getZonedDateTime(), observerLocationBean.getCoordinates(),
+                            projectionBind.get(), planeToCanvas, visibleRadius( planeToCanvas ), limitingMagnitude );
+                },
+                dateTimeBean.zonedDateTimeProperty(),
                 observerLocationBean.coordinatesProperty(),
-                projectionBind
+                projectionBind,
+                planeToCanvasBind,
+                viewingParametersBean.fieldOfViewDegProperty(),
+                limitingMagnitudeRule
         );
     }
 
+    /**
+     * @param planeToCanvas : the transformation from the plane to the canvas coordinates
+     * @return the angular radius, around the center of the projection, of the part of the sky visible in the canvas
+     */
+    private double visibleRadius( Transform planeToCanvas )
+    {
+        // the center of the projection is at the center of the canvas, and the farthest points are its corners
+        double planeRadius = Math.hypot( canvas.getWidth(), canvas.getHeight() ) / 2 / Math.abs( planeToCanvas.getMxx() );
+        // a point at an angle a from the center is projected at a distance tan( a / 2 ) from it
+        return 2 * Math.atan( planeRadius ) + VISIBLE_MARGIN;
+    }
+
     /**
      * Initiate the key event : change the projection center when the user presses the cursor keys
      * @param viewingParametersBean : the ViewingParametersBean
@@ -261,44 +339,80 @@ public class SkyCanvasManager
 
 
     /**
-     * Initiate the bind containing the celestial object closest to the cursor.
+     * Updates the name of the celestial object closest to the cursor, from the current sky and the projection
+     * it was drawn with.
      * it follows the mouse movements and export, via properties, the position of its cursor in the horizontal coordinate system,
      * and the celestial object closest to this cursor.
-     * Bound to the ObservedSky, the mouse position and the planeToCanvas transformation
-     * @return an ObservableStringValue which is the name of the object closest to the mouse
      */
-    private ObservableStringValue initObjectUnderMouseBind()
+    private void updateObjectUnderMouse()
     {
-        return Bindings.createStringBinding( () ->
+        if ( mousePosition.getValue() == null ) { objectUnderMouseName.set( null ); return; }
+        try
         {
-            if ( mousePosition.getValue() == null ) { return null; }
-            Point2D mousePosInPlane = planeToCanvasBind.get().inverseTransform( mousePosition.getValue() );
+            SkyWorker.Request request = currentFrame.request();
+            Point2D mousePosInPlane = request.planeToCanvas().inverseTransform( mousePosition.getValue() );
             CartesianCoordinates mousePos = CartesianCoordinates.of( mousePosInPlane.getX(), mousePosInPlane.getY() );
-            double maxDist = projectionBind.get().applyToAngle( MAX_OBJECT_DISTANCE );
-            Optional<CelestialObject> closestCelestialObject = observedSkyBind.get().objectClosestTo( mousePos, maxDist );
-            // if there is an object close the mouse, return the celestial objects name
-            if ( closestCelestialObject.isPresent() ) {
-                return closestCelestialObject.get().toString(); }
-            // else, return an empty string
-            return "";
-        }, observedSkyBind, mousePosition, planeToCanvasBind );
+            double maxDist = request.projection().applyToAngle( MAX_OBJECT_DISTANCE );
+            Optional<CelestialObject> closestCelestialObject = currentFrame.sky().objectClosestTo( mousePos, maxDist );
+            // if there is an object close the mouse, its name, else an empty string
+            objectUnderMouseName.set( closestCelestialObject.map( CelestialObject::toString ).orElse( "" ) );
+        }
+        catch ( NonInvertibleTransformException e )
+        {
+            objectUnderMouseName.set( "" );
+        }
     }
 
     /**
-     * Add a listener to the Observable object observedSky and planeToCanvas to redraw the canvas
-     * when they change
+     * Add a listener to the inputs of the sky to compute and redraw it when they change
+     * (they depend on planeToCanvas, whose changes are therefore redrawn as well).
+     * The inputs are not read when they are invalidated, but once at the end of the pulse, so that all the changes
+     * of a pulse (the date, the time and the zone of an animation step, the width and the height of a resize)
+     * lead to one computation and one drawing
      */
-    private void initEventListener( SkyCanvasPainter painter )
+    private void initEventListener()
     {
-        observedSkyBind.addListener( ( o, oV, nV ) -> {
-            painter.drawSky( nV, projectionBind.get(), planeToCanvasBind.get() );
-        } );
+        skyRequestBind.addListener( o -> requestRender() );
+        // the annotations point at the view they were drawn for
+        planeToCanvasBind.addListener( o -> clearAnnotations() );
+    }
+
+    /**
+     * Clears the layer of the annotations
+     */
+    public void clearAnnotations()
+    {
+        annotationCanvas.getGraphicsContext2D().clearRect( 0, 0, annotationCanvas.getWidth(), annotationCanvas.getHeight() );
+    }
 
-        planeToCanvasBind.addListener( ( o, oV, nV ) -> {
-            painter.drawSky( observedSkyBind.get(), projectionBind.get(), nV );
+    /**
+     * Schedules the sending of the inputs of the sky to the worker, if it is not scheduled yet.
+     * The worker computes the sky in the background, the JavaFX thread only draws it when it is finished
+     */
+    private void requestRender()
+    {
+        if ( renderRequested ) { return; }
+        renderRequested = true;
+        Platform.runLater( () -> {
+            renderRequested = false;
+            // reading the inputs validates them again, their next invalidation schedules the next computation
+            skyWorker.submit( skyRequestBind.get() );
         } );
     }
 
+    /**
+     * Draws a sky computed by the worker, with the projection it was computed for
+     * @param painter : the painter drawing the sky
+     * @param frame : the sky and its inputs
+     */
+    private void showFrame( SkyCanvasPainter painter, SkyWorker.Frame frame )
+    {
+        currentFrame = frame;
+        observedSky.set( frame.sky() );
+        painter.drawSky( frame.sky(), frame.request().projection(), frame.request().planeToCanvas() );
+        updateObjectUnderMouse();
+    }
+
     /**
      * @param object: a Celestial Object
      * @param name : a prefix of a Celestial Object
@@ -312,28 +426,33 @@ public class SkyCanvasManager
     /**
      *
      * @param name the input of the search
-     * @return the celestial object who has as prefix the name
+     * @return the brightest celestial object who has as prefix the name, or null if there is none
      */
     public CelestialObject getCoordinatesWithName( String name )
     {
-        Sun sun = observedSkyBind.get().sun();
-        if ( compareObjectWithName( sun, name ) ) { return sun; }
-
-        Moon moon = observedSkyBind.get().moon();
-        if ( compareObjectWithName( moon, name ) ) { return moon; }
-
-        List<Star> stars = observedSkyBind.get().stars();
-        for ( Star star : stars )
+        ObservedSky sky = observedSky.get();
+        CelestialObject brightest = null;
+
+        // the few objects of the solar system are compared directly
+        List<CelestialObject> solarObjects = new ArrayList<>( sky.planets() );
+        solarObjects.add( sky.sun() );
+        solarObjects.add( sky.moon() );
+        for ( CelestialObject object : solarObjects )
         {
-            if ( compareObjectWithName( star, name ) ) { return star; }
+            if ( compareObjectWithName( object, name ) && ( brightest == null || object.magnitude() < brightest.magnitude() ) )
+            {
+                brightest = object;
+            }
         }
 
-        List<Planet> planets = observedSkyBind.get().planets();
-        for ( Planet planet : planets )
+        // all the stars of the catalogue, not only the visible ones, through its name index
+        StarCatalogue catalogue = sky.catalogue();
+        int[] stars = catalogue.starsWithNamePrefix( name, 1 );
+        if ( stars.length > 0 && ( brightest == null || catalogue.magnitude( stars[ 0 ] ) < brightest.magnitude() ) )
         {
-            if ( compareObjectWithName( planet, name ) ) { return planet; }
+            brightest = catalogue.star( stars[ 0 ] );
         }
-        return null;
+        return brightest;
     }
 
     /* Getters */
@@ -350,4 +469,28 @@ public class SkyCanvasManager
     public HorizontalCoordinates getMouseHorizontalPosition() { return mouseHorizontalPosition.get(); }
 
     public Canvas canvas() { return canvas; }
+
+    /**
+     * @return the stacked layers of the sky, the canvas being the bottom one
+     */
+    public Pane layers() { return layers; }
+
+    /**
+     * @return the top layer, where the user interface draws its annotations (they are cleared when the view changes)
+     */
+    public Canvas annotationCanvas() { return annotationCanvas; }
+
+    public ObservableObjectValue<ObservedSky> observedSkyProperty() { return observedSky.getReadOnlyProperty(); }
+
+    public ObservedSky getObservedSky() { return observedSky.get(); }
+
+    /* Limiting magnitude rule */
+    public ObjectProperty<LimitingMagnitudeRule> limitingMagnitudeRuleProperty() { return limitingMagnitudeRule; }
+
+    public LimitingMagnitudeRule getLimitingMagnitudeRule() { return limitingMagnitudeRule.get(); }
+
+    public void setLimitingMagnitudeRule( LimitingMagnitudeRule newRule )
+    {
+        limitingMagnitudeRule.set( newRule );
+    }
 }
@@ -1,14 +1,14 @@
 package ch.epfl.rigel.gui;
 
-import ch.epfl.rigel.astronomy.Asterism;
 import ch.epfl.rigel.astronomy.ObservedSky;
 import ch.epfl.rigel.astronomy.Planet;
-import ch.epfl.rigel.astronomy.Star;
+import ch.epfl.rigel.astronomy.StarCatalogue;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.ClosedInterval;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.Canvas;
@@ -20,10 +20,13 @@ import javafx.scene.transform.Transform;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
- * Represents a sky painter : each method draws a part of the sky
+ * Represents a sky painter : each method draws a part of the sky.
+ * The sky is drawn on three layers, stacked canvases of the same size : the stars and the asterisms (on the
+ * background of the sky), the objects of the solar system, and the horizon with the octants. A layer is only
+ * redrawn when the inputs it depends on change, so that the many stars are not drawn again for a change
+ * of the objects of the solar system only, and the horizon is not drawn again while the view does not change.
  */
 public class SkyCanvasPainter
 {
@@ -45,14 +48,41 @@ public class SkyCanvasPainter
     private static final int HORIZON_WIDTH = 2;
 
     private final Canvas canvas;
-    private final GraphicsContext ctx;
+    private final GraphicsContext starsCtx;
+    private final GraphicsContext solarSystemCtx;
+    private final GraphicsContext overlayCtx;
+    // false if the layers are the same canvas, which is then always redrawn whole
+    private final boolean layered;
     private final BlackBodyColor blackBodyColor;
     private final Map<String, HorizontalCoordinates> octants;
+    // positions of the stars and of the stars of the asterisms in the canvas, reused from a drawing to the next
+    private double[] starCanvasPositions = new double[ 0 ];
+    private double[] asterismCanvasPositions = new double[ 0 ];
+    // the sky and the transformation of the last drawing, to which the inputs of the layers are compared
+    private ObservedSky drawnSky;
+    private Transform drawnPlaneToCanvas;
 
+    /**
+     * Builds a painter drawing every layer on the same canvas
+     * @param canvas : the canvas
+     */
     public SkyCanvasPainter( Canvas canvas )
     {
-        this.canvas = canvas;
-        ctx = canvas.getGraphicsContext2D();
+        this( canvas, canvas, canvas );
+    }
+
+    /**
+     * @param starsCanvas : the bottom layer, for the stars and the asterisms
+     * @param solarSystemCanvas : the layer of the objects of the solar system
+     * @param overlayCanvas : the top layer, for the horizon and the octants
+     */
+    public SkyCanvasPainter( Canvas starsCanvas, Canvas solarSystemCanvas, Canvas overlayCanvas )
+    {
+        this.canvas = starsCanvas;
+        starsCtx = starsCanvas.getGraphicsContext2D();
+        solarSystemCtx = solarSystemCanvas.getGraphicsContext2D();
+        overlayCtx = overlayCanvas.getGraphicsContext2D();
+        layered = solarSystemCanvas != starsCanvas && overlayCanvas != starsCanvas;
         // creates an instance of BlackBodyColor to get all the colors once
         blackBodyColor = new BlackBodyColor();
 
@@ -72,37 +102,83 @@ public class SkyCanvasPainter
      * @return the size of the disc representing a celestial object as a function of its magnitude
      */
     private static double magnitudeDiameter( double magnitude, StereographicProjection projection )
+    {
+        return magnitudeSizeFactor( magnitude ) * projection.applyToAngle( HALF_DEG_RAD );
+    }
+
+    /**
+     * @param magnitude : the star magnitude
+     * @return the size of the disc representing a celestial object, relatively to the size of an angle of half a degree
+     */
+    private static double magnitudeSizeFactor( double magnitude )
     {
         double clippedMagnitude = MAGNITUDE_INTERVAL.clip( magnitude );
-        double sizeFactor = ( 99 - 17 * clippedMagnitude ) / 140;
-        return sizeFactor * projection.applyToAngle( HALF_DEG_RAD );
+        return ( 99 - 17 * clippedMagnitude ) / 140;
     }
 
     /**
-     * Draws all the parts of the sky
+     * Draws all the parts of the sky, by redrawing the layers whose inputs changed since the last drawing :
+     * every layer if the transformation changed (the view or the size of the canvas), the stars if they were
+     * projected for other inputs, and the objects of the solar system if they were
      * @param sky : the sky we are drawing into
      * @param projection : the stereographic projection
      * @param planeToCanvas : the transformation from the plane to the canvas coordinates
      */
     public void drawSky( ObservedSky sky, StereographicProjection projection, Transform planeToCanvas )
     {
-        this.clear();
-        this.drawStars( sky, projection, planeToCanvas );
-        this.drawPlanets( sky, projection, planeToCanvas );
-        this.drawSun( sky, projection, planeToCanvas );
-        this.drawMoon( sky, projection, planeToCanvas );
-        this.drawHorizon( projection, planeToCanvas );
+        boolean sameView = layered && planeToCanvas == drawnPlaneToCanvas;
+        if ( !sameView || !sky.hasSameStarsAs( drawnSky ) )
+        {
+            clearStars();
+            this.drawStars( sky, projection, planeToCanvas );
+        }
+        if ( !sameView || !sky.hasSameSolarSystemAs( drawnSky ) )
+        {
+            clearLayer( solarSystemCtx );
+            this.drawPlanets( sky, projection, planeToCanvas );
+            this.drawSun( sky, projection, planeToCanvas );
+            this.drawMoon( sky, projection, planeToCanvas );
+        }
+        // the horizon and the octants only depend on the view
+        if ( !sameView )
+        {
+            clearLayer( overlayCtx );
+            this.drawHorizon( projection, planeToCanvas );
+        }
+        drawnSky = sky;
+        drawnPlaneToCanvas = planeToCanvas;
     }
 
     /**
-     * Clears the canvas
+     * Clears the layers, which are all redrawn by the next drawing of the sky
      */
     public void clear()
     {
-        ctx.clearRect( 0, 0, canvas.getWidth(), canvas.getHeight() );
-        ctx.setFill( Color.BLACK );
-        ctx.fillRect( 0, 0, canvas.getWidth(), canvas.getHeight() );
-        ctx.fill();
+        clearStars();
+        clearLayer( solarSystemCtx );
+        clearLayer( overlayCtx );
+        drawnSky = null;
+        drawnPlaneToCanvas = null;
+    }
+
+    /**
+     * Clears the layer of the stars, to the background of the sky
+     */
+    private void clearStars()
+    {
+        starsCtx.clearRect( 0, 0, canvas.getWidth(), canvas.getHeight() );
+        starsCtx.setFill( Color.BLACK );
+        starsCtx.fillRect( 0, 0, canvas.getWidth(), canvas.getHeight() );
+        starsCtx.fill();
+    }
+
+    /**
+     * Clears a transparent layer, unless it is the canvas of the stars
+     * @param layer : the graphics context of the layer
+     */
+    private void clearLayer( GraphicsContext layer )
+    {
+        if ( layered ) { layer.clearRect( 0, 0, canvas.getWidth(), canvas.getHeight() ); }
     }
 
     /**
@@ -114,37 +190,46 @@ public class SkyCanvasPainter
     public void drawStars( ObservedSky sky, StereographicProjection projection, Transform planeToCanvas )
     {
         // get the asterisms and the stars
-        Set<Asterism> asterisms = sky.getAsterism();
-        List<Star> stars = sky.stars();
-        List<CartesianCoordinates> cartesianCoordinates = sky.starPosition();
-        double[] starsCartesianCoordinates = sky.starsArrayPosition();
-        int starsNumber = stars.size();
-
-        // transform all the stars coordinates into the canvas coordinate system
-        double[] dstPts = new double[ starsNumber * 2 ];
-        planeToCanvas.transform2DPoints( starsCartesianCoordinates, 0, dstPts, 0, starsNumber );
-
-        int starCoordsIndex = 0;
-        for ( Asterism asterism: asterisms )
+        StarCatalogue catalogue = sky.catalogue();
+        int starsNumber = sky.starCount();
+        int asterismStarsNumber = catalogue.asterismCount() == 0 ? 0 : catalogue.asterismEnd( catalogue.asterismCount() - 1 );
+
+        // transform all the stars coordinates into the canvas coordinate system, in place in the arrays of the painter :
+        // transform2DPoints applies the scale and translation in one pass, as fast as a dedicated loop over the array
+        if ( starCanvasPositions.length < 2 * starsNumber ) { starCanvasPositions = new double[ 2 * starsNumber ]; }
+        if ( asterismCanvasPositions.length < 2 * asterismStarsNumber )
+        {
+            asterismCanvasPositions = new double[ 2 * asterismStarsNumber ];
+        }
+        double[] dstPts = starCanvasPositions;
+        sky.copyStarPositions( dstPts );
+        planeToCanvas.transform2DPoints( dstPts, 0, dstPts, 0, starsNumber );
+        double[] asterismPts = asterismCanvasPositions;
+        sky.copyAsterismPositions( asterismPts );
+        planeToCanvas.transform2DPoints( asterismPts, 0, asterismPts, 0, asterismStarsNumber );
+
+        Bounds canvasBounds = canvas.getBoundsInLocal();
+        starsCtx.setLineWidth( ASTERISM_WIDTH );
+        starsCtx.setStroke( BLUE_COLOR );
+        for ( int asterism = 0; asterism < catalogue.asterismCount(); asterism++ )
         {
-            List<Integer> asterismIndices = sky.asterismIndices( asterism );
             boolean firstStar = true;
             boolean lastInsideCanvas = true;
             boolean currentInsideCanvas;
 
-            ctx.beginPath();
-            for ( Integer indice : asterismIndices )
+            starsCtx.beginPath();
+            for ( int p = catalogue.asterismStart( asterism ); p < catalogue.asterismEnd( asterism ); p++ )
             {
-                CartesianCoordinates cartesianCoords = cartesianCoordinates.get( indice );
-                Point2D starPoint = planeToCanvas.transform( cartesianCoords.x(), cartesianCoords.y() );
+                double starX = asterismPts[ 2 * p ];
+                double starY = asterismPts[ 2 * p + 1 ];
 
                 // true if the star is inside the canvas, false otherwise
-                currentInsideCanvas = canvas.getBoundsInLocal().contains( starPoint );
+                currentInsideCanvas = canvasBounds.contains( starX, starY );
 
                 // we don't draw any line when we are at the first star of the asterism
                 if ( firstStar )
                 {
-                    ctx.moveTo( starPoint.getX(), starPoint.getY() );
+                    starsCtx.moveTo( starX, starY );
                     firstStar = false;
                     lastInsideCanvas = currentInsideCanvas;
                     continue;
@@ -153,35 +238,34 @@ public class SkyCanvasPainter
                 // avoid drawing the asterism branches outside the canvas
                 if ( !currentInsideCanvas && !lastInsideCanvas )
                 {
-                    ctx.moveTo( starPoint.getX(), starPoint.getY() );
+                    starsCtx.moveTo( starX, starY );
                     continue;
                 }
 
-                ctx.setLineWidth( ASTERISM_WIDTH );
-                ctx.setStroke( BLUE_COLOR );
-                ctx.lineTo( starPoint.getX(), starPoint.getY() );
-                ctx.stroke();
-
+                starsCtx.lineTo( starX, starY );
                 lastInsideCanvas = currentInsideCanvas;
             }
-            ctx.closePath();
+            starsCtx.stroke();
+            starsCtx.closePath();
         }
 
-        // then we draw the stars
-        for ( Star star : stars )
+        // the transformation of the diameters into the canvas coordinate system is linear
+        double diameterScale = planeToCanvas.deltaTransform( projection.applyToAngle( HALF_DEG_RAD ), 0 ).getX();
+
+        // then we draw the stars, straight from the columns of the catalogue
+        for ( int i = 0; i < starsNumber; i++ )
         {
+            int index = sky.starIndex( i );
             // get the corresponding color thanks to the BlackBodyColor class
-            Color starColor = blackBodyColor.colorForTemperature( star.colorTemperature() );
-            ctx.setFill( starColor );
-            // get the diameter based on the star's magnitude
-            double starDiameter = magnitudeDiameter( star.magnitude(), projection );
-            // transform the diameter into the canvas coordinate system
-            double finalDiameter = planeToCanvas.deltaTransform( starDiameter, 0 ).getX();
+            Color starColor = blackBodyColor.colorForTemperature( catalogue.colorTemperature( index ) );
+            starsCtx.setFill( starColor );
+            // get the diameter based on the star's magnitude, in the canvas coordinate system
+            double finalDiameter = magnitudeSizeFactor( catalogue.magnitude( index ) ) * diameterScale;
             double radius = finalDiameter / 2;
-            double starX = dstPts[ starCoordsIndex++ ] - radius;
-            double starY = dstPts[ starCoordsIndex++ ] - radius;
+            double starX = dstPts[ 2 * i ] - radius;
+            double starY = dstPts[ 2 * i + 1 ] - radius;
             // draw the star as a disk
-            ctx.fillOval( starX, starY, finalDiameter, finalDiameter );
+            starsCtx.fillOval( starX, starY, finalDiameter, finalDiameter );
         }
     }
 
@@ -209,8 +293,8 @@ public class SkyCanvasPainter
             double finalDiameter = planeToCanvas.deltaTransform( planetDiameter, 0 ).getX();
             double radius = finalDiameter / 2;
 
-            ctx.setFill( LIGHTGRAY_COLOR );
-            ctx.fillOval( planetPoint.getX() - radius, planetPoint.getY() - radius, finalDiameter, finalDiameter );
+            solarSystemCtx.setFill( LIGHTGRAY_COLOR );
+            solarSystemCtx.fillOval( planetPoint.getX() - radius, planetPoint.getY() - radius, finalDiameter, finalDiameter );
 
             index++;
         }
@@ -233,19 +317,19 @@ public class SkyCanvasPainter
         double finalDiameter = planeToCanvas.deltaTransform( sunDiameter, 0 ).getX();
 
         // draw three layers of disk to simulate a bright sun
-        ctx.setFill( YELLOW_COLOR_HALO );
+        solarSystemCtx.setFill( YELLOW_COLOR_HALO );
         double haloRadius = ( finalDiameter * 2.2 ) / 2;
-        ctx.fillOval( sunPoint.getX() - haloRadius, sunPoint.getY() - haloRadius,
+        solarSystemCtx.fillOval( sunPoint.getX() - haloRadius, sunPoint.getY() - haloRadius,
                 finalDiameter * 2.2, finalDiameter * 2.2 );
 
-        ctx.setFill( YELLOW_COLOR );
+        solarSystemCtx.setFill( YELLOW_COLOR );
         double yellowRadius = ( finalDiameter + 2 ) / 2;
-        ctx.fillOval( sunPoint.getX() - yellowRadius, sunPoint.getY() - yellowRadius,
+        solarSystemCtx.fillOval( sunPoint.getX() - yellowRadius, sunPoint.getY() - yellowRadius,
                 finalDiameter + 2, finalDiameter + 2 );
 
-        ctx.setFill( WHITE_COLOR );
+        solarSystemCtx.setFill( WHITE_COLOR );
         double whiteRadius = finalDiameter / 2;
-        ctx.fillOval( sunPoint.getX() - whiteRadius, sunPoint.getY() - whiteRadius,
+        solarSystemCtx.fillOval( sunPoint.getX() - whiteRadius, sunPoint.getY() - whiteRadius,
                 finalDiameter, finalDiameter );
     }
 
@@ -267,8 +351,8 @@ public class SkyCanvasPainter
         double finalDiameter = planeToCanvas.deltaTransform( projectedDiameter, 0 ).getX();
         double radius = finalDiameter / 2;
 
-        ctx.setFill( WHITE_COLOR );
-        ctx.fillOval( moonPoint.getX() - radius, moonPoint.getY() - radius, finalDiameter, finalDiameter );
+        solarSystemCtx.setFill( WHITE_COLOR );
+        solarSystemCtx.fillOval( moonPoint.getX() - radius, moonPoint.getY() - radius, finalDiameter, finalDiameter );
     }
 
     /**
@@ -287,13 +371,13 @@ public class SkyCanvasPainter
         // transform it into the canvas coordinate system and prevent it from being negative
         double transformedRadius = Math.abs( planeToCanvas.deltaTransform( radius, 0 ).getX() );
 
-        ctx.setStroke( RED_COLOR );
-        ctx.setLineWidth( HORIZON_WIDTH );
+        overlayCtx.setStroke( RED_COLOR );
+        overlayCtx.setLineWidth( HORIZON_WIDTH );
 
         // avoids infinite radius
         if ( transformedRadius < MAX_HORIZON_RADIUS )
         {
-            ctx.strokeOval(
+            overlayCtx.strokeOval(
                     transformedCenter.getX() - transformedRadius,
                     transformedCenter.getY() - transformedRadius,
                     transformedRadius * 2, transformedRadius * 2 );
@@ -301,12 +385,12 @@ public class SkyCanvasPainter
         else
         {
             // if radius is very big, then simply draw a line
-            ctx.strokeLine( 0, canvas.getHeight() / 2, canvas.getWidth(), canvas.getHeight() / 2 );
+            overlayCtx.strokeLine( 0, canvas.getHeight() / 2, canvas.getWidth(), canvas.getHeight() / 2 );
         }
 
-        ctx.setTextAlign( TextAlignment.CENTER );
-        ctx.setTextBaseline( VPos.TOP );
-        ctx.setFill( RED_COLOR );
+        overlayCtx.setTextAlign( TextAlignment.CENTER );
+        overlayCtx.setTextBaseline( VPos.TOP );
+        overlayCtx.setFill( RED_COLOR );
 
         // draw an octant every 45 degrees
         octants.forEach( ( octantName, octantCoordinates ) -> {
@@ -314,7 +398,7 @@ public class SkyCanvasPainter
             CartesianCoordinates textCenter = projection.apply( octantCoordinates );
             // and transform the coordinates into the canvas coordinate system
             Point2D transformedTextCenter = planeToCanvas.transform( textCenter.x(), textCenter.y()  );
-            ctx.fillText( octantName, transformedTextCenter.getX(), transformedTextCenter.getY() );
+            overlayCtx.fillText( octantName, transformedTextCenter.getX(), transformedTextCenter.getY() );
         } );
     }
 }
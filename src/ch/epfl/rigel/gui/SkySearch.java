@@ -0,0 +1,156 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.*;
+
+import java.util.*;
+
+/**
+ * Typo tolerant search of the celestial objects by name, through a trigram index built once.
+ * The stars are found by their proper name and by their Bayer designation, whose greek letter can be
+ * abbreviated as in the catalogue ("Alp Ori") or written in full ("alpha ori"). The objects of the solar
+ * system come first, then the stars from the brightest to the faintest.
+ */
+public final class SkySearch
+{
+    // abbreviations of the greek letters in the Bayer designations of the catalogue
+    private static final Map<String, String> GREEK_LETTERS = Map.ofEntries(
+            Map.entry( "alp", "alpha" ), Map.entry( "bet", "beta" ), Map.entry( "gam", "gamma" ),
+            Map.entry( "del", "delta" ), Map.entry( "eps", "epsilon" ), Map.entry( "zet", "zeta" ),
+            Map.entry( "the", "theta" ), Map.entry( "iot", "iota" ), Map.entry( "kap", "kappa" ),
+            Map.entry( "lam", "lambda" ), Map.entry( "omi", "omicron" ), Map.entry( "sig", "sigma" ),
+            Map.entry( "ups", "upsilon" ), Map.entry( "ome", "omega" ) );
+
+    private final StarCatalogue catalogue;
+    private final List<String> solarObjectNames;
+    private final TrigramIndex index;
+    // the entries of the index : the name searched for, the label shown for it and its object,
+    // which is a star index if positive, and -1 - n for the solar object n
+    private final List<String> keys;
+    private final List<String> labels;
+    private final List<Integer> objects;
+
+    /**
+     * Builds the index of the names of the stars of the catalogue and of the objects of the solar system
+     * @param catalogue : the catalogue containing the stars
+     * @param solarObjects : the objects of the solar system (at any moment, only their names are used)
+     */
+    public SkySearch( StarCatalogue catalogue, List<? extends CelestialObject> solarObjects )
+    {
+        this.catalogue = catalogue;
+        this.solarObjectNames = new ArrayList<>();
+        this.keys = new ArrayList<>();
+        this.labels = new ArrayList<>();
+        this.objects = new ArrayList<>();
+
+        for ( CelestialObject object : solarObjects )
+        {
+            addEntry( object.name(), object.name(), -1 - solarObjectNames.size() );
+            solarObjectNames.add( object.name() );
+        }
+
+        for ( int rank = 0; rank < catalogue.size(); rank++ )
+        {
+            int star = catalogue.starByMagnitude( rank );
+            String name = catalogue.name( star );
+            // the stars without name nor Bayer designation ("? Ori") can not be searched for
+            if ( !name.startsWith( "?" ) ) { addDesignations( name, name, star ); }
+            String designation = catalogue.designation( star );
+            if ( !designation.isEmpty() ) { addDesignations( designation, name, star ); }
+        }
+
+        this.index = new TrigramIndex( keys );
+    }
+
+    /**
+     * @param query : what the user typed
+     * @param limit : maximum number of results
+     * @return the (at most limit) objects whose name is the most similar to the query, from the most similar one,
+     *         each object being returned at most once
+     */
+    public List<Match> search( String query, int limit )
+    {
+        // an object can have several names, a few more are asked for to fill the results
+        int[] entries = index.search( query, 3 * limit );
+        List<Match> matches = new ArrayList<>();
+        Set<Integer> found = new HashSet<>();
+        for ( int entry : entries )
+        {
+            if ( matches.size() == limit ) { break; }
+            if ( found.add( objects.get( entry ) ) ) { matches.add( new Match( labels.get( entry ), objects.get( entry ) ) ); }
+        }
+        return matches;
+    }
+
+    /**
+     * Adds an entry to the index
+     * @param key : the name searched for
+     * @param label : the name shown to the user
+     * @param object : the object of the entry
+     */
+    private void addEntry( String key, String label, int object )
+    {
+        keys.add( key );
+        labels.add( label );
+        objects.add( object );
+    }
+
+    /**
+     * Adds the entries of a name of a star, and if it begins with the abbreviation of a greek letter
+     * (as the Bayer designations such as "Alp-1 Ori"), of the name with the letter in full
+     * @param designation : a name of the star
+     * @param name : the name of the star in the catalogue
+     * @param star : index of the star
+     */
+    private void addDesignations( String designation, String name, int star )
+    {
+        int end = 0;
+        while ( end < designation.length() && Character.isLetter( designation.charAt( end ) ) ) { end++; }
+        String letter = GREEK_LETTERS.get( designation.substring( 0, end ).toLowerCase( Locale.ROOT ) );
+        String label = designation.equals( name ) ? name : name + " (" + designation + ")";
+
+        addEntry( designation, label, star );
+        if ( letter != null ) { addEntry( letter + designation.substring( end ), label, star ); }
+    }
+
+    /**
+     * A result of the search : the name found and its object
+     */
+    public final class Match
+    {
+        private final String label;
+        private final int object;
+
+        private Match( String label, int object )
+        {
+            this.label = label;
+            this.object = object;
+        }
+
+        /**
+         * @return the name of the object, followed by the designation which matched the query if it is another one
+         */
+        public String label() { return label; }
+
+        /**
+         * @param sky : the observed sky containing the objects of the solar system at the current moment
+         * @return the celestial object found, at the moment of the sky
+         */
+        public CelestialObject in( ObservedSky sky )
+        {
+            if ( object >= 0 ) { return catalogue.star( object ); }
+
+            String name = solarObjectNames.get( -1 - object );
+            List<CelestialObject> solarObjects = new ArrayList<>( sky.planets() );
+            solarObjects.add( sky.sun() );
+            solarObjects.add( sky.moon() );
+            for ( CelestialObject solarObject : solarObjects )
+            {
+                if ( solarObject.name().equals( name ) ) { return solarObject; }
+            }
+            throw new NoSuchElementException( name );
+        }
+
+        @Override
+        public String toString() { return label; }
+    }
+}
@@ -0,0 +1,193 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import javafx.application.Platform;
+import javafx.scene.transform.Transform;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Computes the observed skies on a background thread, so that the JavaFX thread only draws them.
+ * The requests are handed to the worker through a single slot : a request replaces the one which is not computed
+ * yet, so that the worker always computes the newest one. In the same way, a finished sky replaces the one which is
+ * not shown yet, and only the newest finished sky is given to the JavaFX thread.
+ * The skies are computed in the buffers of the skies which are not used anymore (the ones replaced on the canvas
+ * or dropped before being shown), so that an animation does not allocate new arrays for every sky.
+ */
+final class SkyWorker
+{
+    // at most one sky is shown, one is waiting to be shown and one is computed : a few more buffers are never needed
+    private static final int MAX_FREE_BUFFERS = 4;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "sky-worker" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    // the newest request not computed yet, and the newest frame not shown yet
+    private final AtomicReference<Request> pendingRequest = new AtomicReference<>();
+    private final AtomicReference<Frame> finishedFrame = new AtomicReference<>();
+    // the buffers of the skies not used anymore, given back by both threads
+    private final BlockingQueue<ObservedSky.Buffers> freeBuffers = new ArrayBlockingQueue<>( MAX_FREE_BUFFERS );
+    // called on the JavaFX thread with each frame shown
+    private final Consumer<Frame> onFrame;
+
+    // the last sky computed, whose stages are reused when their inputs did not change (used by the worker only)
+    private ObservedSky previousSky;
+    // the frame on the canvas (used by the JavaFX thread only)
+    private Frame shownFrame;
+
+    /**
+     * @param firstFrame : the frame of the first sky, from which the next ones are computed, which is shown
+     * @param onFrame : called on the JavaFX thread with the finished frames, the frames finished in the meantime
+     *                are dropped
+     */
+    SkyWorker( Frame firstFrame, Consumer<Frame> onFrame )
+    {
+        this.previousSky = firstFrame.sky();
+        this.shownFrame = firstFrame;
+        this.onFrame = onFrame;
+    }
+
+    /**
+     * Asks for the computation of the sky of a request, which replaces the request waiting to be computed if any
+     * @param request : the inputs of the sky
+     */
+    void submit( Request request )
+    {
+        if ( pendingRequest.getAndSet( request ) == null ) { executor.execute( this::compute ); }
+    }
+
+    /**
+     * Computes the sky of the newest request, on the worker thread
+     */
+    private void compute()
+    {
+        Request request = pendingRequest.getAndSet( null );
+        if ( request == null ) { return; }
+
+        ObservedSky.Buffers buffers = freeBuffers.poll();
+        if ( buffers == null ) { buffers = new ObservedSky.Buffers(); }
+        ObservedSky sky = previousSky.updated( request.moment(), request.position(), request.projection(),
+                                               request.visibleRadius(), request.limitingMagnitude(), buffers );
+
+        // the buffers belong to the frame of the sky computed in them, an unchanged sky is not computed again
+        Frame frame;
+        if ( sky == previousSky )
+        {
+            frame = new Frame( request, sky );
+            freeBuffers.offer( buffers );
+        }
+        else
+        {
+            frame = new Frame( request, sky, buffers );
+        }
+        previousSky = sky;
+
+        Frame dropped = finishedFrame.getAndSet( frame );
+        if ( dropped == null ) { Platform.runLater( this::showFinishedFrame ); }
+        else { release( dropped, frame ); }
+    }
+
+    /**
+     * Shows the newest finished frame, on the JavaFX thread
+     */
+    private void showFinishedFrame()
+    {
+        Frame frame = finishedFrame.getAndSet( null );
+        onFrame.accept( frame );
+        release( shownFrame, frame );
+        shownFrame = frame;
+    }
+
+    /**
+     * Gives back the buffers of a frame which is not used anymore, unless its sky is the one of the frame replacing
+     * it : the buffers are then left to the garbage collector, the next frames of this sky not owning them
+     * @param replaced : the frame which is not used anymore
+     * @param next : the frame replacing it, on the canvas or as the frame waiting to be shown
+     */
+    private void release( Frame replaced, Frame next )
+    {
+        if ( replaced.buffers != null && replaced.sky != next.sky ) { freeBuffers.offer( replaced.buffers ); }
+    }
+
+    /**
+     * The inputs of a sky, taken on the JavaFX thread
+     */
+    static final class Request
+    {
+        private final ZonedDateTime moment;
+        private final GeographicCoordinates position;
+        private final StereographicProjection projection;
+        private final Transform planeToCanvas;
+        private final double visibleRadius;
+        private final double limitingMagnitude;
+
+        /**
+         * @param moment : the time of observation
+         * @param position : the observation position
+         * @param projection : the stereographic projection
+         * @param planeToCanvas : the transformation from the plane of the projection to the canvas
+         * @param visibleRadius : angular radius of the visible part of the sky
+         * @param limitingMagnitude : magnitude of the faintest stars of the sky
+         */
+        Request( ZonedDateTime moment, GeographicCoordinates position, StereographicProjection projection,
+                 Transform planeToCanvas, double visibleRadius, double limitingMagnitude )
+        {
+            this.moment = moment;
+            this.position = position;
+            this.projection = projection;
+            this.planeToCanvas = planeToCanvas;
+            this.visibleRadius = visibleRadius;
+            this.limitingMagnitude = limitingMagnitude;
+        }
+
+        ZonedDateTime moment() { return moment; }
+
+        GeographicCoordinates position() { return position; }
+
+        StereographicProjection projection() { return projection; }
+
+        Transform planeToCanvas() { return planeToCanvas; }
+
+        double visibleRadius() { return visibleRadius; }
+
+        double limitingMagnitude() { return limitingMagnitude; }
+    }
+
+    /**
+     * A computed sky, with the request it was computed for
+     */
+    static final class Frame
+    {
+        private final Request request;
+        private final ObservedSky sky;
+        // the buffers in which the sky was computed, null if they are not owned by this frame
+        private final ObservedSky.Buffers buffers;
+
+        Frame( Request request, ObservedSky sky )
+        {
+            this( request, sky, null );
+        }
+
+        private Frame( Request request, ObservedSky sky, ObservedSky.Buffers buffers )
+        {
+            this.request = request;
+            this.sky = sky;
+            this.buffers = buffers;
+        }
+
+        Request request() { return request; }
+
+        ObservedSky sky() { return sky; }
+    }
+}
@@ -0,0 +1,99 @@
+package ch.epfl.rigel.math;
+
+/**
+ * Represents a finite series of Chebyshev polynomials of the first kind c0 T0(x) + c1 T1(x) + ... + cN TN(x),
+ * defined on [-1, 1]. It approximates a smooth function much better than its Taylor polynomial of the same degree.
+ */
+public final class ChebyshevSeries
+{
+    // store the coefficients, from c0 to cN
+    private final double[] coefficients;
+
+    /**
+     * Build the series using the coefficients
+     * @param coefficients : the coefficients, from c0 to cN
+     */
+    private ChebyshevSeries( double[] coefficients )
+    {
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Creates a new series with the given coefficients
+     * @param coefficients : the coefficients, from c0 to cN
+     * @return the series
+     */
+    public static ChebyshevSeries of( double... coefficients )
+    {
+        if ( coefficients.length == 0 ) { throw new IllegalArgumentException(); }
+        return new ChebyshevSeries( coefficients.clone() );
+    }
+
+    /**
+     * @param k : index of the node, in [0, count[
+     * @param count : number of nodes
+     * @return the k-th of the count Chebyshev nodes, the zeros of T_count, in decreasing order
+     */
+    public static double node( int k, int count )
+    {
+        return Math.cos( Math.PI * ( k + 0.5 ) / count );
+    }
+
+    /**
+     * Creates the series of degree N - 1 interpolating a function at the N Chebyshev nodes
+     * @param values : the values of the function at the nodes node( 0, N ) to node( N - 1, N )
+     * @return the interpolating series
+     */
+    public static ChebyshevSeries fit( double[] values )
+    {
+        int count = values.length;
+        if ( count == 0 ) { throw new IllegalArgumentException(); }
+
+        double[] coefficients = new double[ count ];
+        for ( int j = 0; j < count; j++ )
+        {
+            double sum = 0;
+            for ( int k = 0; k < count; k++ )
+            {
+                sum += values[ k ] * Math.cos( Math.PI * j * ( k + 0.5 ) / count );
+            }
+            coefficients[ j ] = 2 * sum / count;
+        }
+        coefficients[ 0 ] /= 2;
+        return new ChebyshevSeries( coefficients );
+    }
+
+    /**
+     * @return the degree of the series
+     */
+    public int degree() { return coefficients.length - 1; }
+
+    /**
+     * Give the value of the series at a certain x, by the Clenshaw recurrence
+     * @param x : in [-1, 1]
+     * @return the value at x
+     */
+    public double at( double x )
+    {
+        double next = 0, current = 0;
+        for ( int i = coefficients.length - 1; i > 0; i-- )
+        {
+            double previous = 2 * x * current - next + coefficients[ i ];
+            next = current;
+            current = previous;
+        }
+        return x * current - next + coefficients[ 0 ];
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,99 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCatalogueLoaderTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String HYG_BINARY_CATALOGUE_NAME = "/hygdata_v3.bin";
+
+    private StarCatalogue csvCatalogue() throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    private byte[] compiledCatalogue() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            BinaryCatalogueCompiler.compile(hygStream, out);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertSameStars(StarCatalogue expected, StarCatalogue actual) {
+        assertEquals(expected.size(), actual.size());
+        int designations = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.hipparcosId(i), actual.hipparcosId(i));
+            assertEquals(expected.name(i), actual.name(i));
+            assertEquals(expected.designation(i), actual.designation(i));
+            assertEquals(expected.ra(i), actual.ra(i));
+            assertEquals(expected.dec(i), actual.dec(i));
+            assertEquals(expected.magnitude(i), actual.magnitude(i));
+            assertEquals(expected.colorTemperature(i), actual.colorTemperature(i));
+            if (!actual.designation(i).isEmpty())
+                designations++;
+        }
+        // the Bayer designations of the stars with a proper name are kept, e.g. Alp Ori for Betelgeuse
+        assertTrue(designations > 0);
+        int betelgeuse = actual.starsWithNamePrefix("Betelgeuse", 1)[0];
+        assertEquals("Alp Ori", actual.designation(betelgeuse));
+    }
+
+    @Test
+    void binaryCatalogueContainsTheSameStarsAsTheCsv() throws IOException {
+        StarCatalogue actual = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(compiledCatalogue()), BinaryCatalogueLoader.INSTANCE)
+                .build();
+        assertSameStars(csvCatalogue(), actual);
+    }
+
+    @Test
+    void shippedBinaryCatalogueIsTheCompiledCsv() throws IOException {
+        try (InputStream binaryStream = getClass().getResourceAsStream(HYG_BINARY_CATALOGUE_NAME)) {
+            assertArrayEquals(compiledCatalogue(), binaryStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void mappedBinaryCatalogueContainsTheSameStarsAsTheCsv() throws IOException, URISyntaxException {
+        Path file = Paths.get(getClass().getResource(HYG_BINARY_CATALOGUE_NAME).toURI());
+        StarCatalogue actual = new StarCatalogue.Builder()
+                .loadFrom(file, BinaryCatalogueLoader.INSTANCE)
+                .build();
+        assertSameStars(csvCatalogue(), actual);
+    }
+
+    @Test
+    void loadFailsOnInvalidFile() {
+        assertThrows(IOException.class, () -> {
+            new StarCatalogue.Builder()
+                    .loadFrom(new ByteArrayInputStream(new byte[]{1, 2, 3}), BinaryCatalogueLoader.INSTANCE);
+        });
+    }
+
+    @Test
+    void loadFailsOnTruncatedFile() throws IOException {
+        byte[] catalogue = compiledCatalogue();
+        byte[] truncated = new byte[catalogue.length / 2];
+        System.arraycopy(catalogue, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> {
+            new StarCatalogue.Builder()
+                    .loadFrom(new ByteArrayInputStream(truncated), BinaryCatalogueLoader.INSTANCE);
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CelestialSphereIndexTest {
+    private static double angle(double ra1, double dec1, double ra2, double dec2) {
+        double cos = Math.sin(dec1) * Math.sin(dec2) + Math.cos(dec1) * Math.cos(dec2) * Math.cos(ra1 - ra2);
+        return Math.acos(Math.max(-1, Math.min(1, cos)));
+    }
+
+    @Test
+    void starsWithinContainsAllTheStarsOfTheCap() {
+        var rng = TestRandomizer.newRandom();
+        int size = 20_000;
+        double[] ra = new double[size], dec = new double[size];
+        float[] magnitude = new float[size];
+        for (int i = 0; i < size; i++) {
+            ra[i] = rng.nextDouble(0, Angle.TAU);
+            dec[i] = Math.asin(rng.nextDouble(-1, 1));
+            magnitude[i] = (float) rng.nextDouble(-1, 7);
+        }
+        var index = new CelestialSphereIndex(ra, dec, magnitude, size);
+
+        for (int q = 0; q < 200; q++) {
+            double centerRa = rng.nextDouble(0, Angle.TAU);
+            double centerDec = Math.asin(rng.nextDouble(-1, 1));
+            double radius = rng.nextDouble(0, 2);
+            int[] selected = index.starsWithin(centerRa, centerDec, radius);
+
+            for (int i = 1; i < selected.length; i++)
+                assertTrue(selected[i - 1] < selected[i]);
+            for (int i = 0; i < size; i++) {
+                if (angle(ra[i], dec[i], centerRa, centerDec) <= radius)
+                    assertTrue(Arrays.binarySearch(selected, i) >= 0);
+            }
+            // the cells intersecting a small cap do not contain the whole sky
+            if (radius < 0.2)
+                assertTrue(selected.length < size / 4);
+        }
+    }
+
+    @Test
+    void starsWithinReturnsEverythingForTheWholeSky() {
+        double[] ra = {0, 1, 2, 3, 4}, dec = {0, 0.5, -0.5, 1.5, -1.5};
+        float[] magnitude = {5, 4, 3, 2, 1};
+        var index = new CelestialSphereIndex(ra, dec, magnitude, ra.length);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, index.starsWithin(1, 0, Math.PI));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, index.starsWithin(1, 0, 3));
+    }
+
+    @Test
+    void starsWithinOnlyKeepsTheStarsBrighterThanTheLimitingMagnitude() {
+        var rng = TestRandomizer.newRandom();
+        int size = 20_000;
+        double[] ra = new double[size], dec = new double[size];
+        float[] magnitude = new float[size];
+        for (int i = 0; i < size; i++) {
+            ra[i] = rng.nextDouble(0, Angle.TAU);
+            dec[i] = Math.asin(rng.nextDouble(-1, 1));
+            magnitude[i] = (float) rng.nextDouble(-1, 7);
+        }
+        var index = new CelestialSphereIndex(ra, dec, magnitude, size);
+
+        for (int q = 0; q < 200; q++) {
+            double centerRa = rng.nextDouble(0, Angle.TAU);
+            double centerDec = Math.asin(rng.nextDouble(-1, 1));
+            double radius = rng.nextDouble(0, 4);
+            double limitingMagnitude = rng.nextDouble(-2, 8);
+            int[] all = index.starsWithin(centerRa, centerDec, radius);
+            int[] selected = index.starsWithin(centerRa, centerDec, radius, limitingMagnitude);
+
+            int[] expected = Arrays.stream(all).filter(i -> magnitude[i] <= limitingMagnitude).toArray();
+            assertArrayEquals(expected, selected);
+        }
+    }
+}
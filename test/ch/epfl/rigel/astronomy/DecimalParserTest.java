@@ -0,0 +1,82 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DecimalParserTest {
+    private static ByteBuffer bytes(String s) {
+        return ByteBuffer.wrap(s.getBytes(US_ASCII));
+    }
+
+    private static double parseDouble(String s) {
+        return new DecimalParser().parseDouble(bytes(s), 0, s.length());
+    }
+
+    private static float parseFloat(String s) {
+        return new DecimalParser().parseFloat(bytes(s), 0, s.length());
+    }
+
+    private static int parseInt(String s) {
+        return new DecimalParser().parseInt(bytes(s), 0, s.length());
+    }
+
+    @Test
+    void parseDoubleWorksOnKnownValues() {
+        String[] values = {
+                "0", "-0", "1", "-1", "0.5", "1.3724303693276385", "-0.143145630755865",
+                "0.004696959812148889", "-0.8518930353430763", "6.283185307179586", "1e10", "1.5E-7",
+                "123456789012345678", "9007199254740993", "0.1", ".5", "5.", "+2.5", "1e-300", "1.5f", "NaN"
+        };
+        for (String v : values) {
+            assertEquals(Double.parseDouble(v), parseDouble(v), v);
+        }
+    }
+
+    @Test
+    void parseDoubleIsCorrectlyRoundedOnRandomValues() {
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < 100 * TestRandomizer.RANDOM_ITERATIONS; i++) {
+            double d = Double.longBitsToDouble(rng.nextLong());
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                continue;
+            String s = Double.toString(d);
+            assertEquals(d, parseDouble(s), s);
+
+            String digits = String.format(Locale.ROOT, "%." + rng.nextInt(1, 19) + "f", rng.nextDouble(-7, 7));
+            assertEquals(Double.parseDouble(digits), parseDouble(digits), digits);
+        }
+    }
+
+    @Test
+    void parseFloatWorksLikeFloatParseFloat() {
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < 10 * TestRandomizer.RANDOM_ITERATIONS; i++) {
+            String s = String.format(Locale.ROOT, "%." + rng.nextInt(0, 12) + "f", rng.nextDouble(-30, 30));
+            assertEquals(Float.parseFloat(s), parseFloat(s), s);
+        }
+        assertEquals(5.71f, parseFloat("5.710"));
+    }
+
+    @Test
+    void parseIntWorksLikeIntegerParseInt() {
+        for (String s : new String[]{"0", "88", "-12", "+7", "2147483647", "-2147483648", "118322"}) {
+            assertEquals(Integer.parseInt(s), parseInt(s), s);
+        }
+    }
+
+    @Test
+    void parseFailsOnInvalidNumbers() {
+        assertThrows(NumberFormatException.class, () -> parseDouble(""));
+        assertThrows(NumberFormatException.class, () -> parseDouble("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> parseFloat("abc"));
+        assertThrows(NumberFormatException.class, () -> parseInt("12a"));
+        assertThrows(NumberFormatException.class, () -> parseInt("2147483648"));
+    }
+}
@@ -0,0 +1,100 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EphemerisTest {
+    private static final ZonedDateTime ZDT_2020_03_01_MIDNIGHT_UTC = ZonedDateTime.of(
+            LocalDate.of(2020, Month.MARCH, 1),
+            LocalTime.MIDNIGHT,
+            ZoneOffset.UTC);
+
+    private static void assertSameObject(CelestialObject expected, CelestialObject actual, double maxError) {
+        assertEquals(expected.name(), actual.name());
+        double deltaRa = expected.equatorialPos().ra() - actual.equatorialPos().ra();
+        assertEquals(0, Math.IEEEremainder(deltaRa, Angle.TAU), 10 * maxError);
+        assertEquals(expected.equatorialPos().dec(), actual.equatorialPos().dec(), 10 * maxError);
+        assertEquals(expected.angularSize(), actual.angularSize(), 1e-6);
+        assertEquals(expected.magnitude(), actual.magnitude(), 1e-3);
+    }
+
+    @Test
+    void constructorFailsWithInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new Ephemeris(0, 1e-6, 10));
+        assertThrows(IllegalArgumentException.class, () -> new Ephemeris(4, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new Ephemeris(4, 1e-6, 0));
+    }
+
+    @Test
+    void planetFailsForTheEarth() {
+        var state = new SolarSystemState(0, new EclipticToEquatorialConversion(ZDT_2020_03_01_MIDNIGHT_UTC));
+        assertThrows(IllegalArgumentException.class, () -> new Ephemeris(4, 1e-6, 10).planet(PlanetModel.EARTH, state));
+    }
+
+    @Test
+    void objectsAreCloseToTheirAnalyticModels() {
+        double maxError = Angle.ofArcsec(0.2);
+        var ephemeris = new Ephemeris(4, maxError, 1000);
+        var conversion = new EclipticToEquatorialConversion(ZDT_2020_03_01_MIDNIGHT_UTC);
+        double start = Epoch.J2010.daysUntil(ZDT_2020_03_01_MIDNIGHT_UTC);
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            var state = new SolarSystemState(start + rng.nextDouble(-400, 400), conversion);
+
+            assertSameObject(SunModel.SUN.at(state), ephemeris.sun(state), maxError);
+            assertEquals(SunModel.SUN.at(state).meanAnomaly(), ephemeris.sun(state).meanAnomaly(), maxError);
+            assertSameObject(MoonModel.MOON.at(state), ephemeris.moon(state), maxError);
+            for (var planet : PlanetModel.ALL) {
+                if (planet != PlanetModel.EARTH)
+                    assertSameObject(planet.at(state), ephemeris.planet(planet, state), maxError);
+            }
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedWindowsAreForgotten() {
+        var ephemeris = new Ephemeris(1, 1e-6, 3);
+        var conversion = new EclipticToEquatorialConversion(ZDT_2020_03_01_MIDNIGHT_UTC);
+        assertEquals(0, ephemeris.windowCount());
+        for (int day = 0; day < 3; day++)
+            ephemeris.moon(new SolarSystemState(day + 0.5, conversion));
+        assertEquals(3, ephemeris.windowCount());
+
+        assertEquals(3, ephemeris.fitCount());
+
+        // the window of day 0 is used again, the one of day 1 is forgotten for the one of day 3
+        ephemeris.moon(new SolarSystemState(0.25, conversion));
+        ephemeris.moon(new SolarSystemState(3.5, conversion));
+        assertEquals(3, ephemeris.windowCount());
+        assertEquals(4, ephemeris.fitCount());
+
+        // the windows of days 0 and 2 are still kept
+        ephemeris.sun(new SolarSystemState(0.75, conversion));
+        ephemeris.sun(new SolarSystemState(2.75, conversion));
+        assertEquals(3, ephemeris.windowCount());
+        assertEquals(4, ephemeris.fitCount());
+
+        // the window of day 1 is fitted again, in place of the one of day 3
+        ephemeris.moon(new SolarSystemState(1.5, conversion));
+        assertEquals(5, ephemeris.fitCount());
+        ephemeris.moon(new SolarSystemState(0.5, conversion));
+        ephemeris.moon(new SolarSystemState(2.5, conversion));
+        assertEquals(5, ephemeris.fitCount());
+        ephemeris.moon(new SolarSystemState(3.5, conversion));
+        assertEquals(6, ephemeris.fitCount());
+    }
+
+    @Test
+    void analyticEphemerisGivesTheModels() {
+        var state = new SolarSystemState(1234.5, new EclipticToEquatorialConversion(ZDT_2020_03_01_MIDNIGHT_UTC));
+        assertEquals(MoonModel.MOON.at(state).equatorialPos().ra(), Ephemeris.ANALYTIC.moon(state).equatorialPos().ra());
+        assertEquals(0, Ephemeris.ANALYTIC.windowCount());
+    }
+}
@@ -118,4 +118,20 @@ class EpochTest {
         assertEquals(0.3518254468020382, Epoch.J2010.julianCenturiesUntil(ZDT4), 1e-9);
     }
 
+    @Test
+    void epochMillisOverloadsGiveTheSameValues() {
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            var minDiff = rng.nextLong(-100 * MIN_PER_YEAR, 100 * MIN_PER_YEAR);
+            var zdt = ZDT_SEMESTER_START.plusMinutes(minDiff).plusNanos(rng.nextInt(60_000) * 1_000_000L)
+                    .withZoneSameInstant(ZoneOffset.ofTotalSeconds(rng.nextInt(-64800, 64800)));
+            var millis = Epoch.epochMillis(zdt);
+            for (var epoch : Epoch.values()) {
+                assertEquals(epoch.daysUntil(zdt), epoch.daysUntil(millis));
+                assertEquals(epoch.julianCenturiesUntil(zdt), epoch.julianCenturiesUntil(millis));
+            }
+        }
+        assertEquals(0, Epoch.J2010.daysUntil(Epoch.epochMillis(ZDT_J2010)));
+    }
+
 }
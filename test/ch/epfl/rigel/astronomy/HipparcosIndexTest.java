@@ -0,0 +1,37 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HipparcosIndexTest {
+    @Test
+    void indexWorksLikeAMap() {
+        var rng = TestRandomizer.newRandom();
+        var index = new HipparcosIndex();
+        var expected = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 10 * TestRandomizer.RANDOM_ITERATIONS; i++) {
+            int id = rng.nextInt(0, 5000);
+            index.put(id, i);
+            expected.put(id, i);
+        }
+        for (int id = -10; id < 5010; id++) {
+            assertEquals(expected.getOrDefault(id, HipparcosIndex.ABSENT), index.get(id));
+        }
+    }
+
+    @Test
+    void copyIsIndependent() {
+        var index = new HipparcosIndex();
+        index.put(24436, 0);
+        var copy = index.copy();
+        index.put(24436, 1);
+        index.put(32349, 2);
+        assertEquals(0, copy.get(24436));
+        assertEquals(HipparcosIndex.ABSENT, copy.get(32349));
+        assertEquals(1, index.get(24436));
+    }
+}
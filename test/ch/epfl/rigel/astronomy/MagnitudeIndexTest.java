@@ -0,0 +1,65 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MagnitudeIndexTest {
+    @Test
+    void starsAreSortedByMagnitudeThenByIndex() {
+        var rng = TestRandomizer.newRandom();
+        int size = 10_000;
+        float[] magnitude = new float[size];
+        for (int i = 0; i < size; i++)
+            // few distinct values, so that many stars have the same magnitude
+            magnitude[i] = rng.nextInt(-300, 1200) / 100f;
+        var index = new MagnitudeIndex(magnitude, size);
+
+        boolean[] seen = new boolean[size];
+        for (int rank = 0; rank < size; rank++) {
+            int star = index.star(rank);
+            assertTrue(!seen[star]);
+            seen[star] = true;
+            if (rank > 0) {
+                int previous = index.star(rank - 1);
+                assertTrue(magnitude[previous] < magnitude[star]
+                        || magnitude[previous] == magnitude[star] && previous < star);
+            }
+        }
+    }
+
+    @Test
+    void brighterCountWorksOnRandomMagnitudes() {
+        var rng = TestRandomizer.newRandom();
+        int size = 5_000;
+        float[] magnitude = new float[size];
+        for (int i = 0; i < size; i++)
+            magnitude[i] = (float) rng.nextDouble(-1.5, 8);
+        var index = new MagnitudeIndex(magnitude, size);
+
+        for (int q = 0; q < TestRandomizer.RANDOM_ITERATIONS; q++) {
+            double limit = rng.nextInt(2) == 0 ? rng.nextDouble(-3, 10) : magnitude[rng.nextInt(size)];
+            int expected = 0;
+            for (float m : magnitude)
+                if (m <= limit)
+                    expected++;
+            assertEquals(expected, index.brighterCount(limit));
+        }
+    }
+
+    @Test
+    void brighterCountWorksOnLimitCases() {
+        assertEquals(0, new MagnitudeIndex(new float[0], 0).brighterCount(5));
+
+        float[] magnitude = {2, -1, 2, 6};
+        var index = new MagnitudeIndex(magnitude, magnitude.length);
+        assertEquals(0, index.brighterCount(-1.5));
+        assertEquals(1, index.brighterCount(-1));
+        assertEquals(3, index.brighterCount(2));
+        assertEquals(4, index.brighterCount(6));
+        assertEquals(4, index.brighterCount(Double.POSITIVE_INFINITY));
+        assertEquals(0, index.brighterCount(Double.NEGATIVE_INFINITY));
+    }
+}
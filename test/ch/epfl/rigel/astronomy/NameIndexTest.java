@@ -0,0 +1,61 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NameIndexTest {
+    @Test
+    void starsWithPrefixIgnoresCaseAndRanksByMagnitude() {
+        String[] names = {"Rigel", "Betelgeuse", "Regulus", "Rigil Kentaurus", "? Ori", "rigel b"};
+        float[] magnitude = {0.18f, 0.45f, 1.4f, -0.01f, 5f, 6.7f};
+        var index = new NameIndex(names, magnitude, names.length);
+
+        assertArrayEquals(new int[]{3, 0, 5}, index.starsWithPrefix("RIG", 10));
+        assertArrayEquals(new int[]{3, 0}, index.starsWithPrefix("rig", 2));
+        assertArrayEquals(new int[]{0, 5}, index.starsWithPrefix("rigel", 10));
+        assertArrayEquals(new int[]{1}, index.starsWithPrefix("bet", 10));
+        assertArrayEquals(new int[]{4}, index.starsWithPrefix("?", 10));
+        assertArrayEquals(new int[0], index.starsWithPrefix("sirius", 10));
+        assertArrayEquals(new int[0], index.starsWithPrefix("rig", 0));
+        assertEquals(names.length, index.starsWithPrefix("", 10).length);
+    }
+
+    @Test
+    void starsWithPrefixWorksOnRandomNames() {
+        var rng = TestRandomizer.newRandom();
+        int size = 5_000;
+        String[] names = new String[size];
+        float[] magnitude = new float[size];
+        for (int i = 0; i < size; i++) {
+            var name = new StringBuilder();
+            for (int c = rng.nextInt(1, 6); c > 0; c--)
+                name.append((char) (rng.nextBoolean() ? 'a' + rng.nextInt(3) : 'A' + rng.nextInt(3)));
+            names[i] = name.toString();
+            magnitude[i] = rng.nextInt(-20, 80) / 10f;
+        }
+        var index = new NameIndex(names, magnitude, size);
+
+        for (int q = 0; q < TestRandomizer.RANDOM_ITERATIONS; q++) {
+            String prefix = names[rng.nextInt(size)].substring(0, 1 + rng.nextInt(1));
+            int limit = rng.nextInt(1, 50);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < size; i++)
+                if (names[i].toLowerCase().startsWith(prefix.toLowerCase()))
+                    expected.add(i);
+            expected.sort(Comparator.<Integer>comparingDouble(i -> magnitude[i]).thenComparingInt(i -> i));
+
+            int[] actual = index.starsWithPrefix(prefix, limit);
+            assertEquals(Math.min(limit, expected.size()), actual.length);
+            for (int r = 0; r < actual.length; r++)
+                assertEquals(expected.get(r), actual[r]);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservedSkyTest {
+    private static final ZonedDateTime ZDT_SEMESTER_START = ZonedDateTime.of(
+            LocalDate.of(2020, Month.FEBRUARY, 17),
+            LocalTime.of(13, 15),
+            ZoneOffset.ofHours(1));
+    private static final GeographicCoordinates EPFL = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final GeographicCoordinates GVA = GeographicCoordinates.ofDeg(6.14, 46.2);
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void loadCatalogue() throws IOException {
+        try (InputStream hygStream = ObservedSkyTest.class.getResourceAsStream("/hygdata_v3.csv");
+             InputStream asterismStream = ObservedSkyTest.class.getResourceAsStream("/asterisms.txt")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    private static void assertSameSky(ObservedSky expected, ObservedSky actual) {
+        assertArrayEquals(expected.starsArrayPosition(), actual.starsArrayPosition());
+        assertArrayEquals(expected.asterismsArrayPosition(), actual.asterismsArrayPosition());
+        assertArrayEquals(expected.planetPosition(), actual.planetPosition());
+        assertEquals(expected.sunPosition().x(), actual.sunPosition().x());
+        assertEquals(expected.sunPosition().y(), actual.sunPosition().y());
+        assertEquals(expected.moonPosition().x(), actual.moonPosition().x());
+        assertEquals(expected.moonPosition().y(), actual.moonPosition().y());
+    }
+
+    @Test
+    void updatedGivesTheSkyOfTheNewInputs() {
+        var projection1 = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+        var projection2 = new StereographicProjection(HorizontalCoordinates.ofDeg(200, 30));
+        var moment2 = ZDT_SEMESTER_START.plusHours(5);
+        var sky = new ObservedSky(ZDT_SEMESTER_START, EPFL, projection1, catalogue, 1, 6);
+
+        assertSame(sky, sky.updated(ZDT_SEMESTER_START, EPFL, projection1, 1, 6));
+        assertSameSky(new ObservedSky(ZDT_SEMESTER_START, EPFL, projection2, catalogue, 1, 6),
+                sky.updated(ZDT_SEMESTER_START, EPFL, projection2, 1, 6));
+        assertSameSky(new ObservedSky(ZDT_SEMESTER_START, GVA, projection1, catalogue, 1, 6),
+                sky.updated(ZDT_SEMESTER_START, GVA, projection1, 1, 6));
+        assertSameSky(new ObservedSky(moment2, EPFL, projection1, catalogue, 1, 6),
+                sky.updated(moment2, EPFL, projection1, 1, 6));
+        assertSameSky(new ObservedSky(ZDT_SEMESTER_START, EPFL, projection1, catalogue, 2, 4),
+                sky.updated(ZDT_SEMESTER_START, EPFL, projection1, 2, 4));
+    }
+
+    @Test
+    void updatedKeepsThePlanetsForSubSecondSteps() {
+        var projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+        var sky = new ObservedSky(ZDT_SEMESTER_START, EPFL, projection, catalogue);
+        var next = sky.updated(ZDT_SEMESTER_START.plusNanos(500_000_000), EPFL, projection, Math.PI, Double.POSITIVE_INFINITY);
+        assertSame(sky.planets(), next.planets());
+
+        var later = next.updated(ZDT_SEMESTER_START.plusSeconds(1), EPFL, projection, Math.PI, Double.POSITIVE_INFINITY);
+        assertSameSky(new ObservedSky(ZDT_SEMESTER_START.plusSeconds(1), EPFL, projection, catalogue), later);
+    }
+
+    @Test
+    void starsWithinGivesTheStarsOfTheRange() {
+        var projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+        var sky = new ObservedSky(ZDT_SEMESTER_START, EPFL, projection, catalogue);
+        double[] positions = sky.starsArrayPosition();
+
+        int[] inRectangle = IntStream.range(0, sky.starCount()).filter(i -> -0.2 <= positions[2 * i]
+                && positions[2 * i] <= 0.1 && 0 <= positions[2 * i + 1] && positions[2 * i + 1] <= 0.3).toArray();
+        assertTrue(inRectangle.length > 0);
+        assertArrayEquals(inRectangle, sky.starsWithin(-0.2, 0, 0.1, 0.3));
+
+        int[] inDisc = IntStream.range(0, sky.starCount())
+                .filter(i -> Math.hypot(positions[2 * i] - 0.1, positions[2 * i + 1]) <= 0.2).toArray();
+        assertTrue(inDisc.length > 0);
+        assertArrayEquals(inDisc, sky.starsWithin(CartesianCoordinates.of(0.1, 0), 0.2));
+
+        assertEquals(0, sky.solarSystemObjectsWithin(100, 100, 101, 101).size());
+    }
+
+    @Test
+    void solarSystemObjectsWithinGivesTheObjectsOfTheRange() {
+        var projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+        var sky = new ObservedSky(ZDT_SEMESTER_START, EPFL, projection, catalogue);
+
+        // the objects and their positions, listed linearly
+        List<CelestialObject> objects = new ArrayList<>(sky.planets());
+        List<double[]> positions = new ArrayList<>();
+        double[] planetPositions = sky.planetPosition();
+        for (int p = 0; p < sky.planets().size(); p++)
+            positions.add(new double[]{planetPositions[2 * p], planetPositions[2 * p + 1]});
+        objects.add(sky.sun());
+        positions.add(new double[]{sky.sunPosition().x(), sky.sunPosition().y()});
+        objects.add(sky.moon());
+        positions.add(new double[]{sky.moonPosition().x(), sky.moonPosition().y()});
+
+        for (int o = 0; o < objects.size(); o++) {
+            double x = positions.get(o)[0], y = positions.get(o)[1];
+            for (double size : new double[]{0.05, 0.5, 2, 1e6}) {
+                Set<CelestialObject> inRectangle = new HashSet<>(), inDisc = new HashSet<>();
+                for (int i = 0; i < objects.size(); i++) {
+                    double dx = positions.get(i)[0] - x, dy = positions.get(i)[1] - y;
+                    if (-size <= dx && dx <= size / 2 && -size / 2 <= dy && dy <= size)
+                        inRectangle.add(objects.get(i));
+                    if (dx * dx + dy * dy <= size * size)
+                        inDisc.add(objects.get(i));
+                }
+                assertTrue(inRectangle.contains(objects.get(o)));
+                assertTrue(inDisc.contains(objects.get(o)));
+
+                var actualRectangle = sky.solarSystemObjectsWithin(x - size, y - size / 2, x + size / 2, y + size);
+                assertEquals(inRectangle.size(), actualRectangle.size());
+                assertEquals(inRectangle, new HashSet<>(actualRectangle));
+                var actualDisc = sky.solarSystemObjectsWithin(CartesianCoordinates.of(x, y), size);
+                assertEquals(inDisc.size(), actualDisc.size());
+                assertEquals(inDisc, new HashSet<>(actualDisc));
+            }
+        }
+        assertEquals(objects.size(), sky.solarSystemObjectsWithin(CartesianCoordinates.of(0, 0), 1e6).size());
+    }
+
+    @Test
+    void updatedInBuffersGivesTheSkyOfTheNewInputs() {
+        var projection1 = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+        var projection2 = new StereographicProjection(HorizontalCoordinates.ofDeg(200, 30));
+        var first = new ObservedSky.Buffers();
+        var second = new ObservedSky.Buffers();
+        var sky = new ObservedSky(ZDT_SEMESTER_START, EPFL, projection1, catalogue, 1, 6);
+
+        // the skies are computed alternately in the two buffers, the larger sky growing them
+        var moment = ZDT_SEMESTER_START;
+        double[] radii = {1, 2, 0.5, 2};
+        for (int i = 0; i < radii.length; i++) {
+            moment = moment.plusMinutes(10);
+            var next = sky.updated(moment, EPFL, projection1, radii[i], 6, i % 2 == 0 ? first : second);
+            assertSameSky(new ObservedSky(moment, EPFL, projection1, catalogue, radii[i], 6), next);
+            sky = next;
+        }
+
+        // the asterisms of a sky of the same projection are copied, not shared
+        var sameProjection = sky.updated(moment, EPFL, projection1, 1, 4, first);
+        assertSameSky(new ObservedSky(moment, EPFL, projection1, catalogue, 1, 4), sameProjection);
+        var otherProjection = sameProjection.updated(moment, EPFL, projection2, 1, 4, second);
+        assertSameSky(new ObservedSky(moment, EPFL, projection1, catalogue, 1, 4), sameProjection);
+        assertSameSky(new ObservedSky(moment, EPFL, projection2, catalogue, 1, 4), otherProjection);
+    }
+
+    @Test
+    void hasSameObjectsAsComparesTheInputsOfTheProjections() {
+        var projection1 = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+        var projection2 = new StereographicProjection(HorizontalCoordinates.ofDeg(200, 30));
+        var sky = new ObservedSky(ZDT_SEMESTER_START, EPFL, projection1, catalogue, 1, 6);
+
+        var fainter = sky.updated(ZDT_SEMESTER_START, EPFL, projection1, 1, 4);
+        assertTrue(fainter.hasSameSolarSystemAs(sky));
+        assertFalse(fainter.hasSameStarsAs(sky));
+        assertTrue(sky.hasSameStarsAs(sky));
+
+        var later = sky.updated(ZDT_SEMESTER_START.plusMinutes(1), EPFL, projection1, 1, 6);
+        assertFalse(later.hasSameSolarSystemAs(sky));
+        assertFalse(later.hasSameStarsAs(sky));
+        assertFalse(sky.updated(ZDT_SEMESTER_START, EPFL, projection2, 1, 6).hasSameSolarSystemAs(sky));
+        assertFalse(sky.hasSameStarsAs(null));
+    }
+}
@@ -0,0 +1,81 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelCatalogueLoadingTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private byte[] hygBytes() throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return hygStream.readAllBytes();
+        }
+    }
+
+    private static void assertSameStars(List<Star> expected, List<Star> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Star e = expected.get(i), a = actual.get(i);
+            assertEquals(e.hipparcosId(), a.hipparcosId());
+            assertEquals(e.name(), a.name());
+            assertEquals(e.equatorialPos().ra(), a.equatorialPos().ra());
+            assertEquals(e.equatorialPos().dec(), a.equatorialPos().dec());
+            assertEquals(e.magnitude(), a.magnitude());
+        }
+    }
+
+    @Test
+    void parallelLoadKeepsTheOrderOfTheFile() throws IOException {
+        byte[] hyg = hygBytes();
+        List<Star> expected = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(hyg), HygDatabaseLoader.INSTANCE)
+                .stars();
+
+        var pool = new ForkJoinPool(4);
+        try {
+            for (int chunkBytes : new int[]{1, 1000, 64 * 1024, hyg.length}) {
+                List<Star> actual = new StarCatalogue.Builder()
+                        .loadFrom(new ByteArrayInputStream(hyg), HygDatabaseLoader.INSTANCE, pool, chunkBytes)
+                        .stars();
+                assertSameStars(expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelLoadKeepsAsterismIndices() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream asterismStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE, ForkJoinPool.commonPool())
+                    .loadFrom(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+        for (Asterism asterism : catalogue.asterisms()) {
+            List<Integer> indices = catalogue.asterismIndices(asterism);
+            for (int i = 0; i < indices.size(); i++) {
+                assertEquals(asterism.stars().get(i), catalogue.stars().get(indices.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void parallelLoadPropagatesParsingErrors() {
+        byte[] invalid = "header\n1,2\nthis,is,not,a,star\n".getBytes();
+        assertThrows(RuntimeException.class, () -> {
+            new StarCatalogue.Builder()
+                    .loadFrom(new ByteArrayInputStream(invalid), HygDatabaseLoader.INSTANCE, ForkJoinPool.commonPool(), 1);
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlaneIndexTest {
+    private static int closestByScan(double[] positions, int count, double x, double y, double maxDistance) {
+        int closest = -1;
+        double distance = maxDistance;
+        for (int i = 0; i < count; i++) {
+            double d = Math.hypot(positions[2 * i] - x, positions[2 * i + 1] - y);
+            if (d < distance) {
+                distance = d;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    private static double[] randomPositions(SplittableRandom rng, int count) {
+        double[] positions = new double[2 * count];
+        for (int i = 0; i < count; i++) {
+            // the projections of a uniform sphere, with a few points very far from the center
+            double r = Math.tan(Math.acos(rng.nextDouble(-1, 1)) / 2);
+            double a = rng.nextDouble(0, 2 * Math.PI);
+            positions[2 * i] = r * Math.cos(a);
+            positions[2 * i + 1] = r * Math.sin(a);
+        }
+        positions[0] = Double.POSITIVE_INFINITY;
+        positions[3] = Double.NaN;
+        return positions;
+    }
+
+    private static int[] sorted(IntStream.Builder points) {
+        return points.build().sorted().toArray();
+    }
+
+    @Test
+    void closestWorksLikeALinearScan() {
+        var rng = TestRandomizer.newRandom();
+        int count = 20_000;
+        double[] positions = randomPositions(rng, count);
+        var index = new PlaneIndex(positions, count);
+
+        for (int q = 0; q < TestRandomizer.RANDOM_ITERATIONS; q++) {
+            double x = rng.nextDouble(-6, 6), y = rng.nextDouble(-6, 6);
+            double maxDistance = q % 10 == 0 ? Double.POSITIVE_INFINITY : rng.nextDouble(0, 0.5);
+            assertEquals(closestByScan(positions, count, x, y, maxDistance), index.closest(x, y, maxDistance));
+        }
+    }
+
+    @Test
+    void closestKeepsTheLowestIndexAmongEquallyClosePoints() {
+        double[] positions = {1, 1, 0, 0, 1, 1, 0, 0};
+        var index = new PlaneIndex(positions, 4);
+        assertEquals(0, index.closest(1, 1, 1));
+        assertEquals(1, index.closest(0.1, 0, 1));
+        assertEquals(-1, index.closest(0.5, 0, 0.5));
+    }
+
+    @Test
+    void closestWorksWithoutPoints() {
+        var index = new PlaneIndex(new double[0], 0);
+        assertEquals(-1, index.closest(0, 0, Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void forEachWithinRectangleWorksLikeALinearScan() {
+        var rng = TestRandomizer.newRandom();
+        int count = 20_000;
+        double[] positions = randomPositions(rng, count);
+        var index = new PlaneIndex(positions, count);
+
+        for (int q = 0; q < TestRandomizer.RANDOM_ITERATIONS; q++) {
+            double minX = rng.nextDouble(-6, 6), minY = rng.nextDouble(-6, 6);
+            double maxX = minX + rng.nextDouble(0, 2), maxY = minY + rng.nextDouble(0, 2);
+            double x0 = minX, y0 = minY, x1 = maxX, y1 = maxY;
+            int[] expected = IntStream.range(0, count).filter(i -> x0 <= positions[2 * i] && positions[2 * i] <= x1
+                    && y0 <= positions[2 * i + 1] && positions[2 * i + 1] <= y1).toArray();
+
+            var actual = IntStream.builder();
+            index.forEachWithin(minX, minY, maxX, maxY, actual);
+            assertArrayEquals(expected, sorted(actual));
+        }
+    }
+
+    @Test
+    void forEachWithinRadiusWorksLikeALinearScan() {
+        var rng = TestRandomizer.newRandom();
+        int count = 20_000;
+        double[] positions = randomPositions(rng, count);
+        var index = new PlaneIndex(positions, count);
+
+        for (int q = 0; q < TestRandomizer.RANDOM_ITERATIONS; q++) {
+            double x = rng.nextDouble(-6, 6), y = rng.nextDouble(-6, 6);
+            double radius = q % 10 == 0 ? Double.POSITIVE_INFINITY : rng.nextDouble(0, 1);
+            // the points which are not finite are not indexed
+            int[] expected = IntStream.range(2, count).filter(i -> {
+                double dx = positions[2 * i] - x, dy = positions[2 * i + 1] - y;
+                return dx * dx + dy * dy <= radius * radius;
+            }).toArray();
+
+            var actual = IntStream.builder();
+            index.forEachWithin(x, y, radius, actual);
+            assertArrayEquals(expected, sorted(actual));
+        }
+    }
+
+    @Test
+    void forEachWithinIgnoresEmptyRanges() {
+        double[] positions = {0, 0, 1, 1};
+        var index = new PlaneIndex(positions, 2);
+        var points = IntStream.builder();
+        index.forEachWithin(1, 1, 0, 0, points);
+        index.forEachWithin(0, 0, -1, points);
+        index.forEachWithin(Double.NaN, 0, 1, points);
+        assertEquals(0, points.build().count());
+    }
+}
@@ -156,4 +156,19 @@ class SiderealTimeTest {
         assertEquals(1.1691660434672428, SiderealTime.local(ZDT3, GC3), 1e-9);
         assertEquals(5.55606471152322, SiderealTime.local(ZDT4, GC4), 1e-9);
     }
+
+    @Test
+    void epochMillisOverloadsGiveTheSameValues() {
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            var minDiff = rng.nextLong(-100 * MIN_PER_YEAR, 100 * MIN_PER_YEAR);
+            var zdt = ZDT_SEMESTER_START.plusMinutes(minDiff).plusNanos(rng.nextInt(60_000) * 1_000_000L)
+                    .withZoneSameInstant(ZoneOffset.ofTotalSeconds(rng.nextInt(-64800, 64800)));
+            var where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-90, 90));
+            var millis = Epoch.epochMillis(zdt);
+            assertEquals(SiderealTime.greenwich(zdt), SiderealTime.greenwich(millis), 1e-12);
+            assertEquals(SiderealTime.local(zdt, where), SiderealTime.local(millis, where), 1e-12);
+        }
+    }
+
 }
@@ -0,0 +1,50 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.RightOpenInterval;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SolarSystemStateTest {
+    private static final ZonedDateTime ZDT_2003_11_22_MIDNIGHT_UTC = ZonedDateTime.of(
+            LocalDate.of(2003, Month.NOVEMBER, 22),
+            LocalTime.MIDNIGHT,
+            ZoneOffset.UTC);
+
+    @Test
+    void stateContainsTheSunOfTheInstant() {
+        var when = ZDT_2003_11_22_MIDNIGHT_UTC;
+        var state = new SolarSystemState(Epoch.J2010.daysUntil(when), new EclipticToEquatorialConversion(when));
+        var sun = SunModel.SUN.at(state);
+
+        assertEquals(RightOpenInterval.of(0, Angle.TAU).reduce(state.sunLongitude()), sun.eclipticPos().lon(), 1e-12);
+        assertEquals((float) state.sunMeanAnomaly(), sun.meanAnomaly());
+    }
+
+    @Test
+    void modelsGiveTheSameObjectsFromTheStateAndFromTheInstant() {
+        var when = ZDT_2003_11_22_MIDNIGHT_UTC;
+        double days = Epoch.J2010.daysUntil(when);
+        var conversion = new EclipticToEquatorialConversion(when);
+        var state = new SolarSystemState(days, conversion);
+
+        for (var model : PlanetModel.ALL) {
+            // the Earth can not be seen from itself
+            if (model == PlanetModel.EARTH)
+                continue;
+            var fromState = model.at(state);
+            var fromInstant = model.at(days, conversion);
+            assertEquals(fromInstant.equatorialPos().ra(), fromState.equatorialPos().ra());
+            assertEquals(fromInstant.equatorialPos().dec(), fromState.equatorialPos().dec());
+            assertEquals(fromInstant.magnitude(), fromState.magnitude());
+        }
+
+        var moon = MoonModel.MOON.at(state);
+        assertEquals(MoonModel.MOON.at(days, conversion).equatorialPos().ra(), moon.equatorialPos().ra());
+        assertEquals(MoonModel.MOON.at(days, conversion).equatorialPos().dec(), moon.equatorialPos().dec());
+    }
+}
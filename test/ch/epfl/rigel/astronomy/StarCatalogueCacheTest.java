@@ -0,0 +1,167 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StarCatalogueCacheTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String HYG_BINARY_CATALOGUE_NAME = "/hygdata_v3.bin";
+    private static final String ASTERISM_CATALOGUE_NAME = "/asterisms.txt";
+
+    private StarCatalogue build(Path directory) throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream asterismStream = getClass().getResourceAsStream(ASTERISM_CATALOGUE_NAME)) {
+            return new StarCatalogueCache(directory)
+                    .add(hygStream, HygDatabaseLoader.INSTANCE)
+                    .add(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    private static List<Path> cacheFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(p);
+        }
+    }
+
+    private static void assertSameCatalogue(StarCatalogue expected, StarCatalogue actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.hipparcosId(i), actual.hipparcosId(i));
+            assertEquals(expected.name(i), actual.name(i));
+            assertEquals(expected.ra(i), actual.ra(i));
+            assertEquals(expected.dec(i), actual.dec(i));
+            assertEquals(expected.magnitude(i), actual.magnitude(i));
+            assertEquals(expected.colorIndex(i), actual.colorIndex(i));
+            assertEquals(expected.colorTemperature(i), actual.colorTemperature(i));
+        }
+        assertEquals(expected.asterismCount(), actual.asterismCount());
+        for (int a = 0; a < expected.asterismCount(); a++) {
+            assertEquals(expected.asterismIndices(expected.asterism(a)), actual.asterismIndices(actual.asterism(a)));
+        }
+    }
+
+    @Test
+    void cachedCatalogueIsTheBuiltOne() throws IOException {
+        Path directory = Files.createTempDirectory("rigel-cache");
+        try {
+            StarCatalogue built = build(directory);
+            assertEquals(1, cacheFiles(directory).size());
+            StarCatalogue cached = build(directory);
+            assertSameCatalogue(built, cached);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void corruptedCacheIsRebuilt() throws IOException {
+        Path directory = Files.createTempDirectory("rigel-cache");
+        try {
+            StarCatalogue built = build(directory);
+            Path file = cacheFiles(directory).get(0);
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(file, bytes);
+
+            assertSameCatalogue(built, build(directory));
+            Files.write(file, new byte[]{1, 2, 3});
+            assertSameCatalogue(built, build(directory));
+            assertEquals(1, cacheFiles(directory).size());
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void mappedCatalogueIsCached() throws IOException, URISyntaxException {
+        Path directory = Files.createTempDirectory("rigel-cache");
+        Path binary = Paths.get(getClass().getResource(HYG_BINARY_CATALOGUE_NAME).toURI());
+        try (InputStream asterismStream = getClass().getResourceAsStream(ASTERISM_CATALOGUE_NAME)) {
+            byte[] asterisms = asterismStream.readAllBytes();
+            StarCatalogue expected = build(directory);
+            StarCatalogue built = new StarCatalogueCache(directory)
+                    .add(binary, BinaryCatalogueLoader.INSTANCE)
+                    .add(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                    .build();
+            StarCatalogue cached = new StarCatalogueCache(directory)
+                    .add(binary, BinaryCatalogueLoader.INSTANCE)
+                    .add(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                    .build();
+            assertEquals(2, cacheFiles(directory).size());
+            assertEquals(expected.size(), built.size());
+            assertEquals(expected.asterismCount(), built.asterismCount());
+            assertSameCatalogue(built, cached);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void loadersAreNotCalledOnCacheHit() throws IOException {
+        Path directory = Files.createTempDirectory("rigel-cache");
+        AtomicInteger loads = new AtomicInteger();
+        StarCatalogue.Loader countingLoader = (inputStream, builder) -> {
+            loads.incrementAndGet();
+            HygDatabaseLoader.INSTANCE.load(inputStream, builder);
+        };
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            byte[] hyg = hygStream.readAllBytes();
+            StarCatalogue built = new StarCatalogueCache(directory)
+                    .add(new ByteArrayInputStream(hyg), countingLoader)
+                    .build();
+            assertEquals(1, loads.get());
+            StarCatalogue cached = new StarCatalogueCache(directory)
+                    .add(new ByteArrayInputStream(hyg), countingLoader)
+                    .build();
+            assertEquals(1, loads.get());
+            assertSameCatalogue(built, cached);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void cacheWithHugeCountIsRebuilt() throws IOException {
+        Path directory = Files.createTempDirectory("rigel-cache");
+        try {
+            StarCatalogue built = build(directory);
+            Path file = cacheFiles(directory).get(0);
+            byte[] bytes = Files.readAllBytes(file);
+            // the number of stars follows the magic number, the version and the key (length and SHA-256 bytes)
+            ByteBuffer.wrap(bytes).putInt(3 * Integer.BYTES + 32, Integer.MAX_VALUE - 8);
+            Files.write(file, bytes);
+            assertSameCatalogue(built, build(directory));
+
+            // a truncated file whose count is huge
+            Files.write(file, Arrays.copyOf(bytes, 3 * Integer.BYTES + 32 + Integer.BYTES));
+            assertSameCatalogue(built, build(directory));
+            assertEquals(1, cacheFiles(directory).size());
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StarCatalogueTest {
+    @Test
+    void columnsContainTheStarsAttributes() {
+        var rigel = new Star(24436, "Rigel", EquatorialCoordinates.of(1.3724, -0.1431), 0.18f, -0.03f);
+        var sirius = new Star(32349, "Sirius", EquatorialCoordinates.of(1.7677, -0.2917), -1.44f, 0.009f);
+        var catalogue = new StarCatalogue(List.of(rigel, sirius), List.of(new Asterism(List.of(sirius, rigel))));
+
+        assertEquals(2, catalogue.size());
+        assertEquals(sirius.hipparcosId(), catalogue.hipparcosId(1));
+        assertEquals(sirius.name(), catalogue.name(1));
+        assertEquals(sirius.equatorialPos().ra(), catalogue.ra(1));
+        assertEquals(sirius.equatorialPos().dec(), catalogue.dec(1));
+        assertEquals(sirius.magnitude(), catalogue.magnitude(1));
+        assertEquals(sirius.colorIndex(), catalogue.colorIndex(1));
+        assertEquals(sirius.colorTemperature(), catalogue.colorTemperature(1));
+        assertSame(rigel, catalogue.star(0));
+        assertSame(rigel, catalogue.stars().get(0));
+        assertEquals(List.of(1, 0), catalogue.asterismIndices(catalogue.asterisms().iterator().next()));
+    }
+
+    @Test
+    void starsAddedByColumnsAreCreatedOnceOnDemand() {
+        var catalogue = new StarCatalogue.Builder()
+                .addStar(24436, "Rigel", 1.3724, -0.1431, 0.18f, -0.03f)
+                .build();
+        var rigel = catalogue.star(0);
+        assertEquals("Rigel", rigel.name());
+        assertEquals(24436, rigel.hipparcosId());
+        assertEquals(0.18f, rigel.magnitude(), 0);
+        assertEquals(rigel.colorTemperature(), catalogue.colorTemperature(0));
+        assertSame(rigel, catalogue.star(0));
+        assertSame(rigel, catalogue.stars().get(0));
+    }
+
+    @Test
+    void addStarFailsOnInvalidAttributes() {
+        var builder = new StarCatalogue.Builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.addStar(-1, "Rigel", 0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.addStar(1, "Rigel", 0, 0, 0, 6));
+        assertThrows(IllegalArgumentException.class, () -> builder.addStar(1, "Rigel", 7, 0, 0, 0));
+        assertThrows(NullPointerException.class, () -> builder.addStar(1, null, 0, 0, 0, 0));
+        assertEquals(0, builder.stars().size());
+    }
+
+    @Test
+    void constructorFailsOnAsterismOfUnknownStar() {
+        var eqPos = EquatorialCoordinates.of(0, 0);
+        var star = new Star(1, "A", eqPos, 0, 0);
+        var other = new Star(2, "B", eqPos, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> {
+            new StarCatalogue(List.of(star), List.of(new Asterism(List.of(other))));
+        });
+    }
+
+    @Test
+    void asterismRowsContainTheStarIndices() {
+        var eqPos = EquatorialCoordinates.of(0, 0);
+        var a = new Star(1, "A", eqPos, 0, 0);
+        var b = new Star(2, "B", eqPos, 0, 0);
+        var c = new Star(3, "C", eqPos, 0, 0);
+        var first = new Asterism(List.of(c, a));
+        var second = new Asterism(List.of(b, c, a));
+        var catalogue = new StarCatalogue(List.of(a, b, c), List.of(first, second, first));
+
+        assertEquals(2, catalogue.asterismCount());
+        for (int n = 0; n < catalogue.asterismCount(); n++) {
+            var asterism = catalogue.asterism(n);
+            var indices = catalogue.asterismIndices(asterism);
+            assertEquals(indices.size(), catalogue.asterismEnd(n) - catalogue.asterismStart(n));
+            for (int p = catalogue.asterismStart(n); p < catalogue.asterismEnd(n); p++) {
+                int index = catalogue.asterismStar(p);
+                assertEquals(indices.get(p - catalogue.asterismStart(n)), index);
+                assertSame(asterism.stars().get(p - catalogue.asterismStart(n)), catalogue.star(index));
+            }
+        }
+        assertEquals(List.of(1, 2, 0), catalogue.asterismIndices(second));
+    }
+
+    @Test
+    void parallelProjectionEqualsSequentialProjection() {
+        var rng = TestRandomizer.newRandom();
+        var builder = new StarCatalogue.Builder();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            builder.addStar(i, "S" + i, rng.nextDouble() * 2 * Math.PI,
+                    (rng.nextDouble() - 0.5) * Math.PI, 0, 0);
+        }
+        var catalogue = builder.build();
+        var conversion = new EquatorialToHorizontalConversion(ZonedDateTime.now(), GeographicCoordinates.ofDeg(6.57, 46.52));
+        var projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+
+        int[] indices = new int[catalogue.size() / 2];
+        for (int k = 0; k < indices.length; k++)
+            indices[k] = 2 * k + 1;
+        var expected = new double[2 * indices.length];
+        catalogue.projectStars(indices, indices.length, conversion, projection, expected);
+
+        var pool = new ForkJoinPool(4);
+        try {
+            for (int minChunkStars : new int[]{1, 7, 100, indices.length}) {
+                var actual = new double[2 * indices.length];
+                catalogue.project(indices, indices.length, conversion, projection, actual, pool, minChunkStars);
+                assertArrayEquals(expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
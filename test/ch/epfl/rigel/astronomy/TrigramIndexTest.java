@@ -0,0 +1,60 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrigramIndexTest {
+    private static final List<String> NAMES = List.of(
+            "Sirius", "Canopus", "Arcturus", "Rigel", "Betelgeuse", "Vénus", "alpha Ori", "Alp Ori", "Regulus");
+
+    @Test
+    void foldRemovesCaseAccentsAndPunctuation() {
+        assertEquals("venus", TrigramIndex.fold("Vénus"));
+        assertEquals("alp 1 cen", TrigramIndex.fold("  Alp-1   Cen "));
+        assertEquals("", TrigramIndex.fold("?"));
+    }
+
+    @Test
+    void searchFindsMisspelledNames() {
+        var index = new TrigramIndex(NAMES);
+        assertEquals(4, index.search("betelguese", 3)[0]);
+        assertEquals(4, index.search("BETELGEUZE", 3)[0]);
+        assertEquals(2, index.search("arcturs", 3)[0]);
+        assertEquals(5, index.search("venus", 3)[0]);
+    }
+
+    @Test
+    void searchPrefersPrefixesThenPriority() {
+        var index = new TrigramIndex(NAMES);
+        assertEquals(6, index.search("alpha ori", 1)[0]);
+        assertEquals(3, index.search("rig", 1)[0]);
+        // both names begin with "alp", the shortest one is the most similar
+        assertArrayEquals(new int[]{7, 6}, index.search("alp", 2));
+        // equally similar names are in order of priority
+        assertArrayEquals(new int[]{0, 1}, new TrigramIndex(List.of("Alp Ori", "Alp Cen")).search("alp", 2));
+        assertArrayEquals(new int[]{0, 1}, new TrigramIndex(List.of("Alp Cen", "Alp Ori")).search("alp", 2));
+    }
+
+    @Test
+    void searchReturnsNothingForUnrelatedOrEmptyQueries() {
+        var index = new TrigramIndex(NAMES);
+        assertEquals(0, index.search("xyzzy", 5).length);
+        assertEquals(0, index.search("", 5).length);
+        assertEquals(0, index.search("?!", 5).length);
+        assertEquals(0, index.search("rigel", 0).length);
+    }
+
+    @Test
+    void successiveSearchesDoNotInterfere() {
+        var index = new TrigramIndex(NAMES);
+        int[] first = index.search("alp", 5);
+        index.search("alpha ori", 5);
+        index.search("betelguese", 5);
+        assertArrayEquals(first, index.search("alp", 5));
+        assertArrayEquals(new TrigramIndex(NAMES).search("arcturs", 5), index.search("arcturs", 5));
+    }
+}
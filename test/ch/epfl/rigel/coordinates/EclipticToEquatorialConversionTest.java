@@ -1,6 +1,7 @@
 package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.astronomy.Epoch;
 import org.junit.jupiter.api.Test;
 
 import java.time.*;
@@ -49,6 +50,15 @@ class EclipticToEquatorialConversionTest {
     }
 
 
+    @Test
+    void e2eEpochMillisConstructorGivesTheSameConversion() {
+        var conversion = new EclipticToEquatorialConversion(ZDT_SEMESTER_START);
+        var millisConversion = new EclipticToEquatorialConversion(Epoch.epochMillis(ZDT_SEMESTER_START));
+        var eclPos = EclipticCoordinates.of(Angle.ofDeg(139.7), Angle.ofDeg(4.9));
+        assertEquals(conversion.apply(eclPos).ra(), millisConversion.apply(eclPos).ra());
+        assertEquals(conversion.apply(eclPos).dec(), millisConversion.apply(eclPos).dec());
+    }
+
     @Test
     void e2eApplyWorksFor00() {
         var conversion = new EclipticToEquatorialConversion(ZDT_SEMESTER_START);
@@ -1,6 +1,8 @@
 package ch.epfl.rigel.coordinates;
 
+import ch.epfl.rigel.astronomy.Epoch;
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 import java.time.*;
@@ -62,6 +64,30 @@ class EquatorialToHorizontalConversionTest {
         assertEquals(-0.7328787267995615, ecl5.alt(), 1e-9);
     }
 
+    @Test
+    void e2hInverseApplyIsTheInverseOfApply() {
+        var rng = TestRandomizer.newRandom();
+        var conversion = new EquatorialToHorizontalConversion(ZDT_SEMESTER_START, EPFL);
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            var equ = EquatorialCoordinates.of(rng.nextDouble(0, Angle.TAU), rng.nextDouble(-1.5, 1.5));
+            var back = conversion.inverseApply(conversion.apply(equ));
+            assertEquals(0, Math.sin((back.ra() - equ.ra()) / 2), 1e-9);
+            assertEquals(equ.dec(), back.dec(), 1e-9);
+        }
+    }
+
+    @Test
+    void e2hEpochMillisConstructorGivesTheSameConversion() {
+        var conversion = new EquatorialToHorizontalConversion(ZDT_SEMESTER_START, EPFL);
+        var millisConversion = new EquatorialToHorizontalConversion(Epoch.epochMillis(ZDT_SEMESTER_START), EPFL);
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            var equPos = EquatorialCoordinates.of(rng.nextDouble(0, Angle.TAU), rng.nextDouble(-Math.PI / 2, Math.PI / 2));
+            assertEquals(conversion.apply(equPos).az(), millisConversion.apply(equPos).az(), 1e-12);
+            assertEquals(conversion.apply(equPos).alt(), millisConversion.apply(equPos).alt(), 1e-12);
+        }
+    }
+
     @Test
     void e2hEqualsThrowsUOE() {
         assertThrows(UnsupportedOperationException.class, () -> {
@@ -181,4 +181,108 @@ class StereographicProjectionTest {
             new StereographicProjection(HorizontalCoordinates.of(0, 0)).hashCode();
         });
     }
+
+    @Test
+    void applyToEquatorialWorksLikeConversionThenApply() {
+        var rng = TestRandomizer.newRandom();
+        var when = java.time.ZonedDateTime.parse("2020-03-01T22:30+01:00");
+        for (int p = 0; p < 20; p++) {
+            var where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-89, 89));
+            var conversion = new EquatorialToHorizontalConversion(when, where);
+            var projection = new StereographicProjection(
+                    HorizontalCoordinates.of(rng.nextDouble(0, Math.PI * 2), rng.nextDouble(-1.5, 1.5)));
+
+            int count = 100;
+            double[] ra = new double[count], dec = new double[count];
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                ra[i] = rng.nextDouble(0, Math.PI * 2);
+                dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+                indices[i] = count - 1 - i;
+            }
+            double[] xy = new double[2 * count];
+            projection.applyToEquatorial(conversion, ra, dec, indices, count, xy);
+
+            for (int k = 0; k < count; k++) {
+                var expected = projection.apply(
+                        conversion.apply(EquatorialCoordinates.of(ra[indices[k]], dec[indices[k]])));
+                // far from the center, the projection grows quickly and so do the rounding errors
+                double tolerance = 1e-9 * (1 + expected.x() * expected.x() + expected.y() * expected.y());
+                assertEquals(expected.x(), xy[2 * k], tolerance);
+                assertEquals(expected.y(), xy[2 * k + 1], tolerance);
+            }
+        }
+    }
+
+    @Test
+    void applyToEquatorialVectorsWorksLikeApplyToEquatorial() {
+        var rng = TestRandomizer.newRandom();
+        var when = java.time.ZonedDateTime.parse("2020-03-01T22:30+01:00");
+        for (int p = 0; p < 20; p++) {
+            var where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-89, 89));
+            var conversion = new EquatorialToHorizontalConversion(when.plusMinutes(rng.nextInt(0, 100_000)), where);
+            var projection = new StereographicProjection(
+                    HorizontalCoordinates.of(rng.nextDouble(0, Math.PI * 2), rng.nextDouble(-1.5, 1.5)));
+
+            int count = 100;
+            double[] ra = new double[count], dec = new double[count];
+            double[] x = new double[count], y = new double[count], z = new double[count];
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                ra[i] = rng.nextDouble(0, Math.PI * 2);
+                dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+                x[i] = Math.cos(dec[i]) * Math.cos(ra[i]);
+                y[i] = Math.cos(dec[i]) * Math.sin(ra[i]);
+                z[i] = Math.sin(dec[i]);
+                indices[i] = i;
+            }
+            double[] expected = new double[2 * count], actual = new double[2 * count];
+            projection.applyToEquatorial(conversion, ra, dec, indices, count, expected);
+            projection.applyToEquatorialVectors(conversion, x, y, z, indices, count, actual);
+
+            for (int k = 0; k < 2 * count; k++)
+                assertEquals(expected[k], actual[k], 1e-9 * (1 + expected[k] * expected[k]));
+        }
+    }
+
+    @Test
+    void applyToEquatorialVectorsOnRangesWorksLikeApply() {
+        var rng = TestRandomizer.newRandom();
+        var when = java.time.ZonedDateTime.parse("2020-03-01T22:30+01:00");
+        for (int p = 0; p < 20; p++) {
+            var where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-89, 89));
+            var conversion = new EquatorialToHorizontalConversion(when.plusMinutes(rng.nextInt(0, 100_000)), where);
+            var projection = new StereographicProjection(
+                    HorizontalCoordinates.of(rng.nextDouble(0, Math.PI * 2), rng.nextDouble(-1.5, 1.5)));
+
+            int count = 100;
+            double[] ra = new double[count], dec = new double[count];
+            double[] x = new double[count], y = new double[count], z = new double[count];
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                ra[i] = rng.nextDouble(0, Math.PI * 2);
+                dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+                x[i] = Math.cos(dec[i]) * Math.cos(ra[i]);
+                y[i] = Math.cos(dec[i]) * Math.sin(ra[i]);
+                z[i] = Math.sin(dec[i]);
+                indices[i] = count - 1 - i;
+            }
+
+            // the range before split is left untouched by the projection of the second range
+            int split = rng.nextInt(0, count + 1);
+            double[] xy = new double[2 * count];
+            projection.applyToEquatorialVectors(conversion, x, y, z, indices, split, count, xy);
+            for (int k = 0; k < 2 * split; k++)
+                assertEquals(0, xy[k]);
+            projection.applyToEquatorialVectors(conversion, x, y, z, indices, 0, split, xy);
+
+            for (int k = 0; k < count; k++) {
+                var expected = projection.apply(
+                        conversion.apply(EquatorialCoordinates.of(ra[indices[k]], dec[indices[k]])));
+                double tolerance = 1e-9 * (1 + expected.x() * expected.x() + expected.y() * expected.y());
+                assertEquals(expected.x(), xy[2 * k], tolerance);
+                assertEquals(expected.y(), xy[2 * k + 1], tolerance);
+            }
+        }
+    }
 }
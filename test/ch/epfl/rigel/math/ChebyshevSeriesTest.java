@@ -0,0 +1,60 @@
+package ch.epfl.rigel.math;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChebyshevSeriesTest {
+    @Test
+    void ofFailsWithoutCoefficients() {
+        assertThrows(IllegalArgumentException.class, ChebyshevSeries::of);
+        assertThrows(IllegalArgumentException.class, () -> ChebyshevSeries.fit(new double[0]));
+    }
+
+    @Test
+    void atWorksOnKnownSeries() {
+        // T0 = 1, T1 = x, T2 = 2x^2 - 1, T3 = 4x^3 - 3x
+        var series = ChebyshevSeries.of(1, -2, 0.5, 3);
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            double x = rng.nextDouble(-1, 1);
+            double expected = 1 - 2 * x + 0.5 * (2 * x * x - 1) + 3 * (4 * x * x * x - 3 * x);
+            assertEquals(expected, series.at(x), 1e-12);
+        }
+        assertEquals(3, series.degree());
+        assertEquals(4.2, ChebyshevSeries.of(4.2).at(0.3));
+    }
+
+    @Test
+    void fitInterpolatesPolynomialsExactly() {
+        var polynomial = Polynomial.of(2, -1, 0, 3, 1);
+        int count = 5;
+        double[] values = new double[count];
+        for (int k = 0; k < count; k++)
+            values[k] = polynomial.at(ChebyshevSeries.node(k, count));
+        var series = ChebyshevSeries.fit(values);
+
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            double x = rng.nextDouble(-1, 1);
+            assertEquals(polynomial.at(x), series.at(x), 1e-12);
+        }
+    }
+
+    @Test
+    void fitApproximatesSmoothFunctions() {
+        int count = 16;
+        double[] values = new double[count];
+        for (int k = 0; k < count; k++)
+            values[k] = Math.sin(3 * ChebyshevSeries.node(k, count));
+        var series = ChebyshevSeries.fit(values);
+
+        var rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            double x = rng.nextDouble(-1, 1);
+            assertEquals(Math.sin(3 * x), series.at(x), 1e-10);
+        }
+    }
+}